@@ -1,7 +1,12 @@
 package com.mycompany.billingsystem;
 
 import com.mycompany.billingsystem.db.DatabaseManager;
+import com.mycompany.billingsystem.db.ProductCatalog;
+import com.mycompany.billingsystem.db.TopSellers;
 import com.mycompany.billingsystem.ui.LoginUI;
+import com.mycompany.billingsystem.util.ReceiptArchive;
+import com.mycompany.billingsystem.util.ReceiptService;
+import com.mycompany.billingsystem.util.TaskScheduler;
 import javax.swing.SwingUtilities;
 
 /**
@@ -15,10 +20,24 @@ public class App {
      * @param args Command line arguments (not used).
      */
     public static void main(String[] args) {
+        // Make sure pooled database connections are closed cleanly however the application exits.
+        // Background tasks are stopped first so none is left holding a connection; queued receipts get a few seconds to finish.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            ReceiptService.shutdown(5_000);
+            TaskScheduler.shutdown();
+            ReceiptArchive.shutdown();
+            DatabaseManager.shutdown();
+        }, "db-shutdown"));
+
         // Swing applications should be run on the Event Dispatch Thread (EDT) for thread safety.
         SwingUtilities.invokeLater(() -> {
             // Step 1: Initialize the database. This creates the .db file and tables if they don't exist.
             DatabaseManager.initializeDatabase();
+            // Warm the in-memory product catalog in the background so barcode scans never hit the database.
+            ProductCatalog.loadAsync();
+            TopSellers.loadAsync();
+            // Read the receipt archive's index now rather than on the first sale or receipt lookup.
+            TaskScheduler.run(TaskScheduler.Lane.BACKGROUND, ReceiptArchive::load);
             
             // Step 2: Create and show the login user interface.
             // The application flow starts from the login screen.
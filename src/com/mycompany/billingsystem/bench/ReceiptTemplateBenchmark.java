@@ -0,0 +1,167 @@
+package com.mycompany.billingsystem.bench;
+
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.borders.Border;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.property.TextAlignment;
+import com.itextpdf.layout.property.UnitValue;
+import com.mycompany.billingsystem.model.Money;
+import com.mycompany.billingsystem.model.Product;
+import com.mycompany.billingsystem.util.DateTimes;
+import com.mycompany.billingsystem.util.PdfGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares receipt rendering throughput before and after the receipt template: the original
+ * layout, which builds the header and every style per receipt, against
+ * {@link PdfGenerator#writeReceipt}. Receipts are written to memory so only layout and PDF
+ * encoding are measured, not the disk.
+ *
+ * Usage: java com.mycompany.billingsystem.bench.ReceiptTemplateBenchmark [receipts]
+ */
+public class ReceiptTemplateBenchmark {
+
+    private interface Renderer {
+        void render(OutputStream out, long billId, long billTime, Map<Product, Integer> items, long subtotal, long discountAmount, long grandTotal) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int receipts = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        for (int lines : new int[]{5, 200}) {
+            Map<Product, Integer> bill = buildBill(lines);
+            // Long bills take far longer each, so fewer are rendered to keep the run short.
+            int count = Math.max(50, receipts * 5 / lines);
+            double before = run(ReceiptTemplateBenchmark::writeOriginalReceipt, bill, count);
+            double after = run(PdfGenerator::writeReceipt, bill, count);
+            System.out.printf("%3d lines x %,5d receipts: original %,8.1f receipts/sec, template %,8.1f receipts/sec (%.2fx)%n", lines, count, before, after, after / before);
+        }
+    }
+
+    private static double run(Renderer renderer, Map<Product, Integer> bill, int receipts) throws IOException {
+        long subtotal = 0;
+        for (Map.Entry<Product, Integer> entry : bill.entrySet()) subtotal += entry.getKey().getPricePaise() * entry.getValue();
+        long discount = subtotal / 20;
+
+        // Warm up the JIT, font and template caches before timing.
+        for (int i = 0; i < Math.min(50, receipts); i++) renderer.render(new ByteArrayOutputStream(), i, System.currentTimeMillis(), bill, subtotal, discount, subtotal - discount);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < receipts; i++) renderer.render(new ByteArrayOutputStream(64 * 1024), i, System.currentTimeMillis(), bill, subtotal, discount, subtotal - discount);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return receipts / seconds;
+    }
+
+    private static Map<Product, Integer> buildBill(int lines) {
+        Map<Product, Integer> bill = new LinkedHashMap<>();
+        for (int i = 0; i < lines; i++) {
+            bill.put(new Product(String.valueOf(100000 + i), "Bench Product " + i, 1000L + 37L * i, 1_000, i % 3 == 0 ? 18 : 5), 1 + i % 4);
+        }
+        return bill;
+    }
+
+    // --- The receipt layout as it was before the template, kept as the baseline ---
+
+    private static void writeOriginalReceipt(OutputStream out, long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException {
+        try (PdfWriter writer = new PdfWriter(out);
+             PdfDocument pdf = new PdfDocument(writer);
+             Document document = new Document(pdf, PageSize.A5)) {
+
+            // --- Header ---
+            document.add(new Paragraph("TEAM 5")
+                .setTextAlignment(TextAlignment.CENTER)
+                .setBold()
+                .setFontSize(20)
+                .setMarginBottom(5));
+            
+            document.add(new Paragraph("Mavoor Road, Kozhikode, Kerala")
+                .setTextAlignment(TextAlignment.CENTER)
+                .setFontSize(10));
+
+            document.add(createSeparator());
+
+            // --- Bill Details (Bill No. and Date/Time in IST) ---
+            String formattedDate = DateTimes.formatForReceipt(billTime);
+
+            Table detailsTable = new Table(UnitValue.createPercentArray(new float[]{1, 1}));
+            detailsTable.setWidth(UnitValue.createPercentValue(100));
+            detailsTable.addCell(createDetailCell("Bill No: " + billId, TextAlignment.LEFT));
+            detailsTable.addCell(createDetailCell("Date: " + formattedDate, TextAlignment.RIGHT));
+            document.add(detailsTable);
+            
+            document.add(createSeparator());
+
+            // --- Items Table ---
+            Table itemsTable = new Table(UnitValue.createPercentArray(new float[]{4, 2, 1, 2, 2}));
+            itemsTable.setWidth(UnitValue.createPercentValue(100));
+
+            itemsTable.addHeaderCell(createHeaderCell("Item Name"));
+            itemsTable.addHeaderCell(createHeaderCell("MRP"));
+            itemsTable.addHeaderCell(createHeaderCell("Qty"));
+            itemsTable.addHeaderCell(createHeaderCell("Tax"));
+            itemsTable.addHeaderCell(createHeaderCell("Amount"));
+
+            for (Map.Entry<Product, Integer> entry : billItems.entrySet()) {
+                Product product = entry.getKey();
+                int quantity = entry.getValue();
+                
+                if (product == null) continue; // Safety check
+
+                itemsTable.addCell(createItemCell(product.getName(), TextAlignment.LEFT));
+                itemsTable.addCell(createItemCell("₹" + Money.format(product.getPricePaise()), TextAlignment.RIGHT));
+                itemsTable.addCell(createItemCell(String.valueOf(quantity), TextAlignment.CENTER));
+                itemsTable.addCell(createItemCell(String.format("%.1f%%", product.getTaxSlab()), TextAlignment.RIGHT));
+                itemsTable.addCell(createItemCell("₹" + Money.format(product.getPricePaise() * quantity), TextAlignment.RIGHT));
+            }
+            document.add(itemsTable);
+            document.add(createSeparator());
+
+            // --- Totals Section (Subtotal, Discount, Grand Total) ---
+            Table totalsTable = new Table(UnitValue.createPercentArray(new float[]{1, 1}));
+            totalsTable.setWidth(UnitValue.createPercentValue(100));
+            
+            totalsTable.addCell(createTotalCell("Subtotal:", TextAlignment.RIGHT));
+            totalsTable.addCell(createTotalCell("₹ " + Money.format(subtotal), TextAlignment.RIGHT));
+
+            if (discountAmount > 0) {
+                totalsTable.addCell(createTotalCell("Discount:", TextAlignment.RIGHT));
+                totalsTable.addCell(createTotalCell("- ₹ " + Money.format(discountAmount), TextAlignment.RIGHT));
+            }
+
+            totalsTable.addCell(createTotalCell("Grand Total:", TextAlignment.RIGHT).setBold().setFontSize(14));
+            totalsTable.addCell(createTotalCell("₹ " + Money.format(grandTotal), TextAlignment.RIGHT).setBold().setFontSize(14));
+            
+            document.add(totalsTable);
+        }
+    }
+
+    private static Paragraph createSeparator() {
+        return new Paragraph("--------------------------------------------------").setTextAlignment(TextAlignment.CENTER).setMarginTop(5).setMarginBottom(5);
+    }
+    
+    private static Cell createHeaderCell(String text) {
+        return new Cell().add(new Paragraph(text).setBold()).setTextAlignment(TextAlignment.CENTER).setBorder(Border.NO_BORDER);
+    }
+
+    private static Cell createItemCell(String text, TextAlignment alignment) {
+        return new Cell().add(new Paragraph(text)).setTextAlignment(alignment).setBorder(Border.NO_BORDER).setPaddingTop(2).setPaddingBottom(2);
+    }
+    
+    private static Cell createDetailCell(String text, TextAlignment alignment) {
+        return new Cell().add(new Paragraph(text).setFontSize(9)).setBorder(Border.NO_BORDER).setTextAlignment(alignment);
+    }
+
+    private static Cell createTotalCell(String text, TextAlignment alignment) {
+        return new Cell().add(new Paragraph(text)).setBorder(Border.NO_BORDER).setTextAlignment(alignment);
+    }
+}
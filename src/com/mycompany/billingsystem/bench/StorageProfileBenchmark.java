@@ -0,0 +1,64 @@
+package com.mycompany.billingsystem.bench;
+
+import com.mycompany.billingsystem.db.DatabaseManager;
+import com.mycompany.billingsystem.db.StorageProfile;
+import com.mycompany.billingsystem.model.Product;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares bill throughput between the durable and fast storage profiles.
+ * Each run uses a fresh scratch database so the real inventory.db is never touched.
+ *
+ * Usage: java com.mycompany.billingsystem.bench.StorageProfileBenchmark [bills] [itemsPerBill]
+ */
+public class StorageProfileBenchmark {
+
+    private static final int PRODUCT_COUNT = 200;
+
+    public static void main(String[] args) throws Exception {
+        int bills = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int itemsPerBill = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        for (StorageProfile profile : new StorageProfile[]{StorageProfile.DURABLE, StorageProfile.FAST}) {
+            double billsPerSecond = run(profile, bills, itemsPerBill);
+            System.out.printf("%-8s %,8d bills x %d items: %,10.1f bills/sec%n", profile.getName(), bills, itemsPerBill, billsPerSecond);
+        }
+        DatabaseManager.shutdown();
+    }
+
+    private static double run(StorageProfile profile, int bills, int itemsPerBill) throws Exception {
+        File dbFile = File.createTempFile("bench-" + profile.getName() + "-", ".db");
+        try {
+            DatabaseManager.configure("jdbc:sqlite:" + dbFile.getAbsolutePath(), profile);
+            DatabaseManager.initializeDatabase();
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < PRODUCT_COUNT; i++) {
+                Product product = new Product(String.valueOf(100000 + i), "Bench Product " + i, 1000L + 100L * i, 1_000_000, 5);
+                DatabaseManager.addProduct(product);
+                products.add(product);
+            }
+
+            // Warm up the JIT and the page cache before timing.
+            for (int i = 0; i < Math.min(100, bills); i++) DatabaseManager.saveBill(buildBill(products, i, itemsPerBill), 10_000);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < bills; i++) DatabaseManager.saveBill(buildBill(products, i, itemsPerBill), 10_000);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return bills / seconds;
+        } finally {
+            DatabaseManager.shutdown();
+            for (String suffix : new String[]{"", "-wal", "-shm", "-bills.journal"}) new File(dbFile.getAbsolutePath() + suffix).delete();
+        }
+    }
+
+    private static Map<Product, Integer> buildBill(List<Product> products, int seed, int itemsPerBill) {
+        Map<Product, Integer> bill = new LinkedHashMap<>();
+        for (int j = 0; j < itemsPerBill; j++) bill.put(products.get((seed * 7 + j * 13) % products.size()), 1 + j % 3);
+        return bill;
+    }
+}
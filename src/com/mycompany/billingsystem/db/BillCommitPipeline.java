@@ -0,0 +1,347 @@
+package com.mycompany.billingsystem.db;
+
+import com.mycompany.billingsystem.model.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind commit of finalized bills with group commit.
+ *
+ * {@link #submit} appends the bill to a small local journal file and forces it to disk, which is
+ * much cheaper than a full SQLite transaction, then hands it to a single committer thread and
+ * returns at once. The committer drains everything that queued up while the previous transaction
+ * was running and writes it as one transaction, so under load many bills share one database
+ * commit. Each future completes with the bill id once its transaction has committed.
+ *
+ * Every journaled bill carries a unique commit token that is stored in bills.commit_token.
+ * If the application stops before a bill reaches the database, the next startup replays the
+ * journal and skips tokens that are already there, so a bill is never lost or saved twice.
+ * The journal is emptied whenever no bills are outstanding.
+ *
+ * If a group transaction fails, its bills are retried one by one so a single bad bill cannot
+ * fail the others.
+ */
+public final class BillCommitPipeline implements AutoCloseable {
+
+    /**
+     * A finalized bill waiting to be committed, in the form it is journaled.
+     */
+    static final class PendingBill {
+        final String commitToken;
+        final long billTimeMillis;
+        final long totalPaise;
+        final String[] barcodes;
+        final int[] quantities;
+        final long[] pricesPaise;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        PendingBill(String commitToken, long billTimeMillis, long totalPaise, String[] barcodes, int[] quantities, long[] pricesPaise) {
+            this.commitToken = commitToken;
+            this.billTimeMillis = billTimeMillis;
+            this.totalPaise = totalPaise;
+            this.barcodes = barcodes;
+            this.quantities = quantities;
+            this.pricesPaise = pricesPaise;
+        }
+
+        static PendingBill of(Map<Product, Integer> billItems, long totalPaise, long billTimeMillis, String commitToken) {
+            int n = billItems.size();
+            String[] barcodes = new String[n];
+            int[] quantities = new int[n];
+            long[] prices = new long[n];
+            int i = 0;
+            for (Map.Entry<Product, Integer> entry : billItems.entrySet()) {
+                barcodes[i] = entry.getKey().getBarcode();
+                quantities[i] = entry.getValue();
+                prices[i] = entry.getKey().getPricePaise();
+                i++;
+            }
+            return new PendingBill(commitToken, billTimeMillis, totalPaise, barcodes, quantities, prices);
+        }
+
+        int size() {
+            return barcodes.length;
+        }
+
+        byte[] serialize() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 32 * barcodes.length);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(commitToken);
+                out.writeLong(billTimeMillis);
+                out.writeLong(totalPaise);
+                out.writeInt(barcodes.length);
+                for (int i = 0; i < barcodes.length; i++) {
+                    out.writeUTF(barcodes[i]);
+                    out.writeInt(quantities[i]);
+                    out.writeLong(pricesPaise[i]);
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        static PendingBill deserialize(byte[] payload) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                String token = in.readUTF();
+                long billTime = in.readLong();
+                long total = in.readLong();
+                int n = in.readInt();
+                String[] barcodes = new String[n];
+                int[] quantities = new int[n];
+                long[] prices = new long[n];
+                for (int i = 0; i < n; i++) {
+                    barcodes[i] = in.readUTF();
+                    quantities[i] = in.readInt();
+                    prices[i] = in.readLong();
+                }
+                return new PendingBill(token, billTime, total, barcodes, quantities, prices);
+            }
+        }
+    }
+
+    /** Journal record header: payload length and CRC32 of the payload. */
+    private static final int HEADER_BYTES = 8;
+    private static final PendingBill STOP = new PendingBill("", 0, 0, new String[0], new int[0], new long[0]);
+
+    private final Path journalPath;
+    private final FileChannel journal;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingBill> queue = new LinkedBlockingQueue<>();
+    private final Object journalLock = new Object();
+    private final Thread committer;
+    private int outstanding = 0;
+    private boolean closed = false;
+
+    private final AtomicLong committedBills = new AtomicLong();
+    private final AtomicLong commitTransactions = new AtomicLong();
+    private final AtomicLong failedBills = new AtomicLong();
+
+    /**
+     * Opens the journal, replays any bills left over from a previous run and starts the committer.
+     *
+     * @param journalPath The journal file, created if missing.
+     * @param maxBatchSize The most bills written in one transaction.
+     * @throws IOException If the journal cannot be opened, or a journaled bill could not be
+     *                     committed; the journal is then kept and replayed again next time.
+     */
+    BillCommitPipeline(Path journalPath, int maxBatchSize) throws IOException {
+        this.journalPath = journalPath;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            try {
+                journal.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+        committer = new Thread(this::runCommitter, "bill-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Durably queues a bill for commit.
+     *
+     * @param billItems The products sold and their quantities; copied, so the caller may reuse the map.
+     * @param totalPaise The amount charged after discount, in paise.
+     * @param billTimeMillis The time the bill is saved with, in epoch millis.
+     * @return A future that completes with the bill id once the bill is in the database,
+     *         or exceptionally with the SQLException that prevented it.
+     * @throws IOException If the bill could not be written to the journal; nothing was queued.
+     */
+    public CompletableFuture<Long> submit(Map<Product, Integer> billItems, long totalPaise, long billTimeMillis) throws IOException {
+        PendingBill bill = PendingBill.of(billItems, totalPaise, billTimeMillis, UUID.randomUUID().toString());
+        byte[] payload = bill.serialize();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        synchronized (journalLock) {
+            if (closed) throw new IllegalStateException("Bill commit pipeline is closed");
+            long position = journal.size();
+            while (record.hasRemaining()) position += journal.write(record, position);
+            journal.force(false);
+            outstanding++;
+        }
+        queue.add(bill);
+        return bill.result;
+    }
+
+    public long getCommittedBills() {
+        return committedBills.get();
+    }
+
+    public long getCommitTransactions() {
+        return commitTransactions.get();
+    }
+
+    public long getFailedBills() {
+        return failedBills.get();
+    }
+
+    /**
+     * Commits everything already submitted, then stops the committer and closes the journal.
+     */
+    @Override
+    public void close() {
+        synchronized (journalLock) {
+            if (closed) return;
+            closed = true;
+        }
+        queue.add(STOP);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing bill journal: " + e.getMessage());
+        }
+        System.out.println("Bill commit pipeline closed: " + committedBills.get() + " bills in " + commitTransactions.get() + " transactions, " + failedBills.get() + " failed");
+    }
+
+    private void runCommitter() {
+        List<PendingBill> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // Only close() stops the committer; bills may still be queued.
+                continue;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            if (batch.remove(STOP)) stopping = true;
+            // Bills submitted before close() may still be behind the stop marker.
+            if (stopping) queue.drainTo(batch);
+            for (int from = 0; from < batch.size(); from += maxBatchSize) commit(batch.subList(from, Math.min(batch.size(), from + maxBatchSize)));
+            resolved(batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the bills as one transaction, falling back to one transaction per bill if that fails.
+     */
+    private void commit(List<PendingBill> bills) {
+        if (bills.isEmpty()) return;
+        try {
+            long[] ids = DatabaseManager.saveBills(bills);
+            commitTransactions.incrementAndGet();
+            committedBills.addAndGet(bills.size());
+            for (int i = 0; i < ids.length; i++) bills.get(i).result.complete(ids[i]);
+            return;
+        } catch (SQLException e) {
+            if (bills.size() == 1) {
+                failedBills.incrementAndGet();
+                bills.get(0).result.completeExceptionally(e);
+                return;
+            }
+            System.err.println("Group commit of " + bills.size() + " bills failed, committing them one by one: " + e.getMessage());
+        } catch (RuntimeException e) {
+            for (PendingBill bill : bills) bill.result.completeExceptionally(e);
+            failedBills.addAndGet(bills.size());
+            return;
+        }
+        for (PendingBill bill : bills) commit(List.of(bill));
+    }
+
+    /**
+     * Marks bills as no longer outstanding and empties the journal once nothing is left in flight.
+     * Failed bills are dropped too: the cashier has been told and will ring them up again.
+     */
+    private void resolved(int count) {
+        synchronized (journalLock) {
+            outstanding -= count;
+            if (outstanding == 0 && journal.isOpen()) {
+                try {
+                    journal.truncate(0);
+                } catch (IOException e) {
+                    System.err.println("Error truncating bill journal: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Commits bills journaled by a previous run that never reached the database.
+     * Reading stops at the first torn or corrupt record, which can only be the tail of a write that never completed.
+     * The journal is only emptied once every bill in it is in the database: if any fails, it is left
+     * whole and replayed again next time, when the bills that did commit are skipped by their token.
+     */
+    private void recover() throws IOException {
+        List<PendingBill> unfinished = new ArrayList<>();
+        long size = journal.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            journal.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int expectedCrc = header.getInt();
+            if (length < 0 || position + HEADER_BYTES + length > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining()) {
+                if (journal.read(payload, position + HEADER_BYTES + payload.position()) < 0) break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != expectedCrc) break;
+            PendingBill bill = PendingBill.deserialize(payload.array());
+            try {
+                if (DatabaseManager.findBillIdByCommitToken(bill.commitToken) == null) unfinished.add(bill);
+            } catch (SQLException e) {
+                // Keep the journal: without knowing what was committed, replaying could save bills twice.
+                throw new IOException("Could not check journaled bills against the database: " + e.getMessage(), e);
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (!unfinished.isEmpty()) {
+            commit(unfinished);
+            int recovered = 0;
+            Throwable failure = null;
+            for (PendingBill bill : unfinished) {
+                if (!bill.result.isCompletedExceptionally()) {
+                    recovered++;
+                    continue;
+                }
+                try {
+                    bill.result.join();
+                } catch (RuntimeException e) {
+                    if (failure == null) failure = e.getCause() != null ? e.getCause() : e;
+                }
+                System.err.println("Could not recover journaled bill " + bill.commitToken + " (total " + bill.totalPaise + " paise)");
+            }
+            if (recovered > 0) System.out.println("Recovered " + recovered + " bill(s) from " + journalPath);
+            if (failure != null) {
+                throw new IOException("Could not recover " + (unfinished.size() - recovered) + " journaled bill(s); they stay in " + journalPath + " until they can be committed: " + failure.getMessage(), failure);
+            }
+        }
+        journal.truncate(0);
+        journal.force(false);
+    }
+}
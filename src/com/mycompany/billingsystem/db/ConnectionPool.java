@@ -0,0 +1,343 @@
+package com.mycompany.billingsystem.db;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small connection pool built around the way SQLite handles concurrency.
+ * SQLite only ever allows one writer at a time, so the pool keeps a single writer connection
+ * guarded by a semaphore, plus a fixed number of read-only connections for lookups and reports.
+ * Connections stay open for the lifetime of the pool, so callers no longer pay for opening the
+ * database file on every query.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** Connections idle for longer than this are validated before being handed out again. */
+    private static final long HEALTH_CHECK_IDLE_MILLIS = 30_000;
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final StorageProfile profile;
+    private final int readerCount;
+    private final int statementCacheSize;
+    private final long acquireTimeoutMillis;
+
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private final Semaphore writerPermit = new Semaphore(1, true);
+    private PooledConnection writer;
+    private volatile boolean closed = false;
+
+    // --- Metrics ---
+    private final AtomicLong readerAcquires = new AtomicLong();
+    private final AtomicLong writerAcquires = new AtomicLong();
+    private final AtomicLong readerWaitNanos = new AtomicLong();
+    private final AtomicLong writerWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong replacedConnections = new AtomicLong();
+    private final AtomicInteger readersInUse = new AtomicInteger();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+
+    /**
+     * Creates a pool for the given database. Connections are opened lazily on first use.
+     *
+     * @param url The JDBC URL of the SQLite database.
+     * @param profile The PRAGMA settings applied to every connection the pool opens.
+     * @param readerCount The maximum number of read-only connections to keep open.
+     * @param statementCacheSize The maximum number of prepared statements cached per connection.
+     * @param acquireTimeoutMillis How long a caller may wait for a free connection before failing.
+     */
+    public ConnectionPool(String url, StorageProfile profile, int readerCount, int statementCacheSize, long acquireTimeoutMillis) {
+        if (readerCount < 1) throw new IllegalArgumentException("readerCount must be at least 1");
+        this.url = url;
+        this.profile = profile;
+        this.readerCount = readerCount;
+        this.statementCacheSize = statementCacheSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleReaders = new ArrayBlockingQueue<>(readerCount);
+    }
+
+    /**
+     * Borrows a read-only connection. The lease must be closed to return it to the pool.
+     * @return A lease on a reader connection.
+     * @throws SQLException If the pool is closed, no reader becomes free in time, or a connection cannot be opened.
+     */
+    public Lease reader() throws SQLException {
+        ensureOpen();
+        long start = System.nanoTime();
+        PooledConnection pooled = idleReaders.poll();
+        if (pooled == null) {
+            if (openReaders.incrementAndGet() <= readerCount) {
+                try {
+                    pooled = newPooledConnection(true);
+                } catch (SQLException e) {
+                    openReaders.decrementAndGet();
+                    throw e;
+                }
+            } else {
+                openReaders.decrementAndGet();
+                try {
+                    pooled = idleReaders.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a reader connection.", e);
+                }
+                if (pooled == null) {
+                    timeouts.incrementAndGet();
+                    throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a reader connection.");
+                }
+            }
+        }
+        try {
+            pooled = checkHealth(pooled, true);
+        } catch (SQLException e) {
+            openReaders.decrementAndGet();
+            throw e;
+        }
+        recordWait(readerAcquires, readerWaitNanos, start);
+        readersInUse.incrementAndGet();
+        return new Lease(pooled, false);
+    }
+
+    /**
+     * Borrows the single writer connection, waiting for any other writer to finish first.
+     * The lease must be closed to release the writer.
+     * @return A lease on the writer connection.
+     * @throws SQLException If the pool is closed, the writer does not become free in time, or it cannot be opened.
+     */
+    public Lease writer() throws SQLException {
+        ensureOpen();
+        long start = System.nanoTime();
+        try {
+            if (!writerPermit.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for the writer connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection.", e);
+        }
+        try {
+            writer = (writer == null) ? newPooledConnection(false) : checkHealth(writer, false);
+        } catch (SQLException e) {
+            writer = null;
+            writerPermit.release();
+            throw e;
+        }
+        recordWait(writerAcquires, writerWaitNanos, start);
+        return new Lease(writer, true);
+    }
+
+    /**
+     * @return The storage profile applied to this pool's connections.
+     */
+    public StorageProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return A point-in-time snapshot of the pool's usage counters.
+     */
+    public PoolStats getStats() {
+        return new PoolStats(readerCount, openReaders.get(), readersInUse.get(), writerPermit.availablePermits() == 0,
+                readerAcquires.get(), writerAcquires.get(), readerWaitNanos.get(), writerWaitNanos.get(),
+                maxWaitNanos.get(), timeouts.get(), replacedConnections.get(),
+                statementCacheHits.get(), statementCacheMisses.get(), statementCacheEvictions.get());
+    }
+
+    /**
+     * Closes every idle connection and marks the pool as closed. Connections that are still
+     * leased are closed as soon as they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idleReaders.poll()) != null) {
+            pooled.closeQuietly();
+            openReaders.decrementAndGet();
+        }
+        if (writerPermit.tryAcquire()) {
+            if (writer != null) writer.closeQuietly();
+            writer = null;
+            writerPermit.release();
+        }
+    }
+
+    private PooledConnection newPooledConnection(boolean readOnly) throws SQLException {
+        Connection conn = open(readOnly);
+        return new PooledConnection(conn, new StatementCache(conn, statementCacheSize, statementCacheHits, statementCacheMisses, statementCacheEvictions));
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(profile.getBusyTimeoutMillis());
+        if (readOnly) config.setReadOnly(true);
+        Connection conn = config.createConnection(url);
+        try {
+            profile.applyTo(conn, !readOnly);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    private PooledConnection checkHealth(PooledConnection pooled, boolean readOnly) throws SQLException {
+        boolean stale = System.currentTimeMillis() - pooled.lastUsedMillis > HEALTH_CHECK_IDLE_MILLIS;
+        if (pooled.connection.isClosed() || (stale && !pooled.connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS))) {
+            pooled.closeQuietly();
+            replacedConnections.incrementAndGet();
+            return newPooledConnection(readOnly);
+        }
+        return pooled;
+    }
+
+    private void release(PooledConnection pooled, boolean isWriter) {
+        pooled.lastUsedMillis = System.currentTimeMillis();
+        try {
+            // A caller that failed half-way through a transaction must not leak it to the next borrower.
+            if (!pooled.connection.isClosed() && !pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding connection that could not be reset: " + e.getMessage());
+            pooled.closeQuietly();
+        }
+        if (isWriter) {
+            if (closed) {
+                pooled.closeQuietly();
+                writer = null;
+            }
+            writerPermit.release();
+        } else {
+            readersInUse.decrementAndGet();
+            if (closed || !idleReaders.offer(pooled)) {
+                pooled.closeQuietly();
+                openReaders.decrementAndGet();
+            }
+        }
+    }
+
+    private void recordWait(AtomicLong acquires, AtomicLong waitNanos, long start) {
+        long waited = System.nanoTime() - start;
+        acquires.incrementAndGet();
+        waitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connection pool has been shut down.");
+    }
+
+    /**
+     * A physical connection owned by the pool, along with its bookkeeping.
+     */
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final StatementCache statements;
+        private long lastUsedMillis = System.currentTimeMillis();
+
+        private PooledConnection(Connection connection, StatementCache statements) {
+            this.connection = connection;
+            this.statements = statements;
+        }
+
+        private void closeQuietly() {
+            statements.clear();
+            try { connection.close(); } catch (SQLException e) { System.err.println("Error closing pooled connection: " + e.getMessage()); }
+        }
+    }
+
+    /**
+     * A borrowed connection. Closing the lease returns the connection to the pool; it does not
+     * close the underlying connection.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledConnection pooled;
+        private final boolean isWriter;
+        private boolean released = false;
+
+        private Lease(PooledConnection pooled, boolean isWriter) {
+            this.pooled = pooled;
+            this.isWriter = isWriter;
+        }
+
+        public Connection connection() { return pooled.connection; }
+
+        /**
+         * Returns a cached prepared statement for this connection, compiling it only on first use.
+         * Do not close the returned statement; do close the ResultSets it produces.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException { return pooled.statements.prepare(sql); }
+
+        /**
+         * As {@link #prepare(String)}, for statements that must return generated keys.
+         */
+        public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException { return pooled.statements.prepare(sql, autoGeneratedKeys); }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            release(pooled, isWriter);
+        }
+    }
+
+    /**
+     * An immutable snapshot of pool usage, suitable for logging or display.
+     */
+    public static final class PoolStats {
+        private final int maxReaders, openReaders, readersInUse;
+        private final boolean writerInUse;
+        private final long readerAcquires, writerAcquires, readerWaitNanos, writerWaitNanos, maxWaitNanos, timeouts, replacedConnections;
+        private final long statementCacheHits, statementCacheMisses, statementCacheEvictions;
+
+        private PoolStats(int maxReaders, int openReaders, int readersInUse, boolean writerInUse, long readerAcquires, long writerAcquires,
+                          long readerWaitNanos, long writerWaitNanos, long maxWaitNanos, long timeouts, long replacedConnections,
+                          long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+            this.maxReaders = maxReaders; this.openReaders = openReaders; this.readersInUse = readersInUse; this.writerInUse = writerInUse;
+            this.readerAcquires = readerAcquires; this.writerAcquires = writerAcquires;
+            this.readerWaitNanos = readerWaitNanos; this.writerWaitNanos = writerWaitNanos; this.maxWaitNanos = maxWaitNanos;
+            this.timeouts = timeouts; this.replacedConnections = replacedConnections;
+            this.statementCacheHits = statementCacheHits; this.statementCacheMisses = statementCacheMisses; this.statementCacheEvictions = statementCacheEvictions;
+        }
+
+        // --- Getters ---
+        public int getMaxReaders() { return maxReaders; }
+        public int getOpenReaders() { return openReaders; }
+        public int getReadersInUse() { return readersInUse; }
+        public boolean isWriterInUse() { return writerInUse; }
+        public long getReaderAcquires() { return readerAcquires; }
+        public long getWriterAcquires() { return writerAcquires; }
+        public long getTimeouts() { return timeouts; }
+        public long getReplacedConnections() { return replacedConnections; }
+        public double getAverageReaderWaitMillis() { return readerAcquires == 0 ? 0 : readerWaitNanos / 1e6 / readerAcquires; }
+        public double getAverageWriterWaitMillis() { return writerAcquires == 0 ? 0 : writerWaitNanos / 1e6 / writerAcquires; }
+        public double getMaxWaitMillis() { return maxWaitNanos / 1e6; }
+        public long getStatementCacheHits() { return statementCacheHits; }
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+        public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+        @Override
+        public String toString() {
+            return String.format("readers %d/%d open (%d in use), writer %s, acquires r=%d w=%d, avg wait r=%.3fms w=%.3fms, max wait %.3fms, timeouts %d, replaced %d, statements hit=%d miss=%d evicted=%d",
+                    openReaders, maxReaders, readersInUse, writerInUse ? "busy" : "idle", readerAcquires, writerAcquires,
+                    getAverageReaderWaitMillis(), getAverageWriterWaitMillis(), getMaxWaitMillis(), timeouts, replacedConnections,
+                    statementCacheHits, statementCacheMisses, statementCacheEvictions);
+        }
+    }
+}
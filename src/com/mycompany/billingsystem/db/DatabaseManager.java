@@ -1,16 +1,23 @@
 package com.mycompany.billingsystem.db;
 
+import com.mycompany.billingsystem.event.BillCommittedEvent;
+import com.mycompany.billingsystem.event.EventBus;
+import com.mycompany.billingsystem.event.ProductChangedEvent;
 import com.mycompany.billingsystem.model.Product;
 import com.mycompany.billingsystem.model.User;
+import com.mycompany.billingsystem.util.DateTimes;
 import com.mycompany.billingsystem.util.PasswordUtil;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.*;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages all database operations.
@@ -19,265 +26,787 @@ import java.util.Map;
 public class DatabaseManager {
 
     private static final String DB_URL = "jdbc:sqlite:inventory.db";
+    private static final StorageProfile DEFAULT_PROFILE = StorageProfile.fromName(System.getProperty("billing.db.profile", "durable"));
+    private static final int READER_CONNECTIONS = Integer.getInteger("billing.db.readers", 4);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("billing.db.statementCacheSize", 64);
+    private static final long POOL_ACQUIRE_TIMEOUT_MILLIS = Long.getLong("billing.db.acquireTimeoutMs", 10_000L);
+    private static final int COMMIT_BATCH_SIZE = Integer.getInteger("billing.db.commitBatchSize", 64);
+
+    /**
+     * Today's sales figures, read in one transaction together with the id of the newest bill they include.
+     */
+    public static final class SalesSnapshot {
+        public final long lastBillId;
+        public final long todaysSalesPaise;
+        public final int todaysBillCount;
+
+        SalesSnapshot(long lastBillId, long todaysSalesPaise, int todaysBillCount) {
+            this.lastBillId = lastBillId;
+            this.todaysSalesPaise = todaysSalesPaise;
+            this.todaysBillCount = todaysBillCount;
+        }
+    }
+
+    /**
+     * A page of bill summaries held as parallel primitive columns rather than one Object[] per bill.
+     */
+    public static final class SalesHistory {
+        private long[] billIds;
+        private long[] billTimes;
+        private long[] totalsPaise;
+        private int size = 0;
+
+        SalesHistory(int initialCapacity) {
+            int capacity = Math.max(16, initialCapacity);
+            billIds = new long[capacity];
+            billTimes = new long[capacity];
+            totalsPaise = new long[capacity];
+        }
+
+        void add(long billId, long billTimeMillis, long totalPaise) {
+            if (size == billIds.length) {
+                int capacity = size * 2;
+                billIds = Arrays.copyOf(billIds, capacity);
+                billTimes = Arrays.copyOf(billTimes, capacity);
+                totalsPaise = Arrays.copyOf(totalsPaise, capacity);
+            }
+            billIds[size] = billId;
+            billTimes[size] = billTimeMillis;
+            totalsPaise[size] = totalPaise;
+            size++;
+        }
+
+        public int size() { return size; }
+        public long getBillId(int row) { return billIds[row]; }
+        /** @return The bill time in epoch millis. */
+        public long getBillTime(int row) { return billTimes[row]; }
+        public long getTotalPaise(int row) { return totalsPaise[row]; }
+    }
+
+    /**
+     * Receives the rows of a sales report one at a time; see {@link #forEachReportRow}.
+     */
+    public interface ReportRowHandler {
+        /**
+         * @param itemName The product's current name, its barcode if it has been deleted since, or null for a bill with no items.
+         */
+        void row(long billId, long billTime, long totalPaise, String itemName, int quantity, long pricePaise) throws IOException;
+    }
+
+    /**
+     * Everything needed to lay out a saved bill's receipt again.
+     */
+    public static final class BillReceipt {
+        public final long billId;
+        /** The bill time in epoch millis. */
+        public final long billTime;
+        /** The amount charged after discount, in paise. */
+        public final long totalPaise;
+        /**
+         * The items in the order they were rung up, priced as sold. Names and tax slabs are the
+         * products' current ones; a product deleted since shows its barcode as its name and no tax.
+         */
+        public final Map<Product, Integer> items;
+
+        BillReceipt(long billId, long billTime, long totalPaise, Map<Product, Integer> items) {
+            this.billId = billId;
+            this.billTime = billTime;
+            this.totalPaise = totalPaise;
+            this.items = items;
+        }
+
+        /** @return The sum of the line totals, in paise. */
+        public long getSubtotalPaise() {
+            long subtotal = 0;
+            for (Map.Entry<Product, Integer> entry : items.entrySet()) subtotal += entry.getKey().getPricePaise() * entry.getValue();
+            return subtotal;
+        }
+
+        /** @return The discount given, in paise: whatever the subtotal exceeds the amount charged by. */
+        public long getDiscountPaise() {
+            return Math.max(0, getSubtotalPaise() - totalPaise);
+        }
+    }
+
+    /**
+     * Per-product daily quantities from the rollup, read in one transaction together with the id
+     * of the newest bill they include.
+     */
+    public static final class DailyProductSales {
+        public final long lastBillId;
+        /** Rows of {day as 'yyyy-MM-dd', barcode, units sold}. */
+        public final List<Object[]> rows;
+
+        DailyProductSales(long lastBillId, List<Object[]> rows) {
+            this.lastBillId = lastBillId;
+            this.rows = rows;
+        }
+    }
+
+    private static String dbUrl = DB_URL;
+    private static StorageProfile storageProfile = DEFAULT_PROFILE;
+    private static ConnectionPool pool;
+    private static BillCommitPipeline billPipeline;
+    private static Boolean fullTextSearchAvailable;
+
+    /**
+     * Returns the shared connection pool, creating it on first use.
+     * Every query in this class borrows its connection from here instead of opening the database file itself.
+     */
+    private static synchronized ConnectionPool pool() {
+        if (pool == null) pool = new ConnectionPool(dbUrl, storageProfile, READER_CONNECTIONS, STATEMENT_CACHE_SIZE, POOL_ACQUIRE_TIMEOUT_MILLIS);
+        return pool;
+    }
+
+    /**
+     * @return How many reader connections the pool keeps; work that reads in parallel should leave one free for the UI.
+     */
+    public static int getReaderConnections() {
+        return READER_CONNECTIONS;
+    }
+
+    /**
+     * Points the manager at a different database and/or storage profile.
+     * Any open connections are closed; the next query reopens the pool with the new settings.
+     *
+     * @param url The JDBC URL to use, e.g. "jdbc:sqlite:inventory.db".
+     * @param profile The PRAGMA profile applied to every connection.
+     */
+    public static void configure(String url, StorageProfile profile) {
+        shutdown();
+        synchronized (DatabaseManager.class) {
+            fullTextSearchAvailable = null;
+            dbUrl = url;
+            storageProfile = profile;
+        }
+    }
+
+    /**
+     * Returns the write-behind bill pipeline, creating it on first use. Creating it replays any bills
+     * the previous run journaled but never committed, so {@link #initializeDatabase()} does that at startup.
+     */
+    private static synchronized BillCommitPipeline billPipeline() throws IOException {
+        if (billPipeline == null) {
+            String path = dbUrl.startsWith("jdbc:sqlite:") ? dbUrl.substring("jdbc:sqlite:".length()) : "inventory.db";
+            billPipeline = new BillCommitPipeline(Paths.get(path + "-bills.journal"), COMMIT_BATCH_SIZE);
+        }
+        return billPipeline;
+    }
+
+    /**
+     * @return A snapshot of connection pool usage, wait times and prepared-statement cache hit rates.
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return pool().getStats();
+    }
+
+    /**
+     * Closes all pooled connections. Intended to be called once when the application exits.
+     */
+    public static void shutdown() {
+        BillCommitPipeline pipeline;
+        synchronized (DatabaseManager.class) {
+            pipeline = billPipeline;
+            billPipeline = null;
+        }
+        // Closed outside the lock: the committer still needs pool() to flush the last bills.
+        if (pipeline != null) pipeline.close();
+        synchronized (DatabaseManager.class) {
+            if (pool != null) {
+                System.out.println("Closing database connections: " + pool.getStats());
+                pool.close();
+                pool = null;
+            }
+        }
+    }
 
     // ... (initializeDatabase and all user/product methods are unchanged) ...
     
     /**
-     * NEW: Fetches sales history for a custom date range.
+     * Fetches one page of the bills created in [fromMillis, toMillis), newest first.
+     *
+     * Pages are addressed by keyset rather than by offset: pass the (bill_date, bill_id) of the last
+     * row of the previous page and the query seeks straight to it on idx_bills_date, so reading page
+     * 10,000 costs the same as reading page 1. For the first page pass (toMillis, Long.MIN_VALUE).
+     * A non-zero offset skips that many rows after the key, for jumping ahead of the last known key;
+     * the skipped rows are read from the index only.
      *
-     * @param fromDate The start date in 'YYYY-MM-DD' format.
-     * @param toDate   The end date in 'YYYY-MM-DD' format.
-     * @return A list of sales records within the specified range.
+     * @param beforeTime The bill_date of the last row already shown.
+     * @param beforeBillId The bill_id of the last row already shown.
+     * @param offset How many rows after that key to skip.
+     * @param limit The page size.
+     * @return The bills on the page; empty if it could not be read.
      */
-    public static List<Object[]> getSalesHistoryByDateRange(String fromDate, String toDate) {
-        List<Object[]> history = new ArrayList<>();
-        String sql = "SELECT bill_id, bill_date, total_amount FROM bills WHERE bill_date BETWEEN ? AND ? ORDER BY bill_date DESC";
+    public static SalesHistory getSalesHistoryPage(long fromMillis, long toMillis, long beforeTime, long beforeBillId, int offset, int limit) {
+        try {
+            return querySalesHistoryPage(fromMillis, toMillis, beforeTime, beforeBillId, offset, limit);
+        } catch (SQLException e) {
+            System.err.println("Error fetching sales history page: " + e.getMessage());
+            return new SalesHistory(0);
+        }
+    }
 
-        // Append time to dates to ensure the entire day is included in the range
-        String startDateTime = fromDate + " 00:00:00";
-        String endDateTime = toDate + " 23:59:59";
+    /**
+     * Like {@link #getSalesHistoryPage}, but a failed read is thrown rather than looking like the
+     * end of the range; for walking a whole range, where a short page means there is no more.
+     */
+    public static SalesHistory querySalesHistoryPage(long fromMillis, long toMillis, long beforeTime, long beforeBillId, int offset, int limit) throws SQLException {
+        SalesHistory page = new SalesHistory(limit);
+        String sql = "SELECT bill_id, bill_date, total_paise FROM bills WHERE bill_date >= ? AND bill_date < ? AND (bill_date, bill_id) < (?, ?) "
+                + "ORDER BY bill_date DESC, bill_id DESC LIMIT ? OFFSET ?";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setLong(1, fromMillis);
+            pstmt.setLong(2, toMillis);
+            pstmt.setLong(3, beforeTime);
+            pstmt.setLong(4, beforeBillId);
+            pstmt.setInt(5, limit);
+            pstmt.setInt(6, offset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) page.add(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            }
+        }
+        return page;
+    }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, startDateTime);
-            pstmt.setString(2, endDateTime);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                history.add(new Object[]{
-                    rs.getLong("bill_id"),
-                    rs.getString("bill_date"),
-                    rs.getDouble("total_amount")
-                });
+    /**
+     * Streams the bills created in [fromMillis, toMillis) whose (bill_date, bill_id) key lies below
+     * (beforeTime, beforeBillId) and at or above (lastTime, lastBillId), with one row per item,
+     * newest bill first and each bill's items in the order they were rung up. Rows are handed over
+     * as they are read, so a range of any length is never held in memory.
+     *
+     * @throws IOException If the handler throws it; reading stops there.
+     */
+    public static void forEachReportRow(long fromMillis, long toMillis, long beforeTime, long beforeBillId, long lastTime, long lastBillId, ReportRowHandler handler) throws SQLException, IOException {
+        String sql = "SELECT b.bill_id, b.bill_date, b.total_paise, COALESCE(p.name, bi.product_barcode), bi.quantity, bi.price_paise FROM bills b "
+                + "LEFT JOIN bill_items bi ON bi.bill_id = b.bill_id LEFT JOIN products p ON p.barcode = bi.product_barcode "
+                + "WHERE b.bill_date >= ? AND b.bill_date < ? AND (b.bill_date, b.bill_id) < (?, ?) AND (b.bill_date, b.bill_id) >= (?, ?) "
+                + "ORDER BY b.bill_date DESC, b.bill_id DESC, bi.item_id";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setLong(1, fromMillis);
+            pstmt.setLong(2, toMillis);
+            pstmt.setLong(3, beforeTime);
+            pstmt.setLong(4, beforeBillId);
+            pstmt.setLong(5, lastTime);
+            pstmt.setLong(6, lastBillId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) handler.row(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getString(4), rs.getInt(5), rs.getLong(6));
             }
+        }
+    }
+
+    /**
+     * @return The number of bills created in [fromMillis, toMillis), counted on idx_bills_date.
+     */
+    public static int countBillsBetween(long fromMillis, long toMillis) {
+        String sql = "SELECT COUNT(*) FROM bills WHERE bill_date >= ? AND bill_date < ?";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setLong(1, fromMillis);
+            pstmt.setLong(2, toMillis);
+            try (ResultSet rs = pstmt.executeQuery()) { return rs.next() ? rs.getInt(1) : 0; }
         } catch (SQLException e) {
-            System.err.println("Error fetching sales history by date range: " + e.getMessage());
+            System.err.println("Error counting bills: " + e.getMessage());
+            return 0;
         }
-        return history;
     }
 
 
     // --- All other existing methods remain unchanged ---
+    /**
+     * Creates the database if needed and upgrades its schema to the latest version
+     * (see {@link SchemaMigrations}), then seeds the default administrator account.
+     */
     public static void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement()) {
+        try (ConnectionPool.Lease lease = pool().writer();
+             Statement stmt = lease.connection().createStatement()) {
+            Connection conn = lease.connection();
+            SchemaMigrations.migrate(conn);
             conn.setAutoCommit(false);
-            stmt.execute("CREATE TABLE IF NOT EXISTS products (barcode TEXT PRIMARY KEY, name TEXT NOT NULL UNIQUE, price REAL NOT NULL, stock_quantity INTEGER NOT NULL, tax_slab REAL NOT NULL);");
-            stmt.execute("CREATE TABLE IF NOT EXISTS users (username TEXT PRIMARY KEY, password_hash TEXT NOT NULL, role TEXT NOT NULL);");
-            stmt.execute("CREATE TABLE IF NOT EXISTS bills (bill_id INTEGER PRIMARY KEY AUTOINCREMENT, bill_date TEXT NOT NULL, total_amount REAL NOT NULL);");
-            stmt.execute("CREATE TABLE IF NOT EXISTS bill_items (item_id INTEGER PRIMARY KEY AUTOINCREMENT, bill_id INTEGER NOT NULL, product_barcode TEXT NOT NULL, quantity INTEGER NOT NULL, price_per_item REAL NOT NULL, FOREIGN KEY(bill_id) REFERENCES bills(bill_id), FOREIGN KEY(product_barcode) REFERENCES products(barcode));");
             try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
                 if (rs.next() && rs.getInt(1) == 0) {
-                    addUserInternal(conn, "admin", "admin", "administrator");
+                    addUserInternal(lease, "admin", "admin", "administrator");
                     System.out.println("Default administrator account created. Username: 'admin', Password: 'admin'");
                 }
             }
             conn.commit();
+            conn.setAutoCommit(true);
+            System.out.println("Database schema version " + SchemaMigrations.currentVersion(conn) + ", storage profile: " + storageProfile);
         } catch (SQLException e) { System.err.println("Database initialization error: " + e.getMessage()); e.printStackTrace(); }
+        // Opened once the writer is released: it replays bills left in the journal by the previous run.
+        try { billPipeline(); }
+        catch (IOException e) { System.err.println("Could not open the bill journal: " + e.getMessage()); }
     }
-    private static boolean addUserInternal(Connection conn, String username, String password, String role) throws SQLException {
+    private static boolean addUserInternal(ConnectionPool.Lease lease, String username, String password, String role) throws SQLException {
         String sql = "INSERT INTO users(username, password_hash, role) VALUES(?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setString(1, username); pstmt.setString(2, PasswordUtil.hashPassword(password)); pstmt.setString(3, role);
             pstmt.executeUpdate();
             return true;
         } catch (SQLException e) { throw new SQLException("Error adding user: " + e.getMessage(), e); }
     }
     public static boolean addUser(String username, String password, String role) {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) { return addUserInternal(conn, username, password, role); } 
+        try (ConnectionPool.Lease lease = pool().writer()) { return addUserInternal(lease, username, password, role); } 
         catch (SQLException e) { System.err.println(e.getMessage()); return false; }
     }
     public static String verifyUser(String username, String password) {
         String sql = "SELECT password_hash, role FROM users WHERE username = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                if (PasswordUtil.verifyPassword(password, rs.getString("password_hash"))) { return rs.getString("role"); }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    if (PasswordUtil.verifyPassword(password, rs.getString("password_hash"))) { return rs.getString("role"); }
+                }
             }
         } catch (SQLException e) { System.err.println("Error verifying user: " + e.getMessage()); }
         return null;
     }
     public static List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT username, role FROM users")) {
+        try (ConnectionPool.Lease lease = pool().reader(); ResultSet rs = lease.prepare("SELECT username, role FROM users").executeQuery()) {
             while (rs.next()) { users.add(new User(rs.getString("username"), rs.getString("role"))); }
         } catch (SQLException e) { System.err.println("Error fetching all users: " + e.getMessage()); }
         return users;
     }
     public static boolean resetUserPassword(String username, String newPassword) {
         String sql = "UPDATE users SET password_hash = ? WHERE username = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool().writer()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setString(1, PasswordUtil.hashPassword(newPassword)); pstmt.setString(2, username);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) { System.err.println("Error resetting password: " + e.getMessage()); return false; }
     }
     public static boolean doesProductNameExist(String name) {
         String sql = "SELECT 1 FROM products WHERE name = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setString(1, name);
             try (ResultSet rs = pstmt.executeQuery()) { return rs.next(); }
         } catch (SQLException e) { System.err.println("Error checking for product name: " + e.getMessage()); return false; }
     }
     public static boolean addProduct(Product product) {
-        String sql = "INSERT INTO products(barcode, name, price, stock_quantity, tax_slab) VALUES(?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, product.getBarcode()); pstmt.setString(2, product.getName()); pstmt.setDouble(3, product.getPrice());
-            pstmt.setInt(4, product.getStockQuantity()); pstmt.setDouble(5, product.getTaxSlab());
+        String sql = "INSERT INTO products(barcode, name, price_paise, stock_quantity, tax_slab, reorder_level) VALUES(?, ?, ?, ?, ?, ?)";
+        try (ConnectionPool.Lease lease = pool().writer()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setString(1, product.getBarcode()); pstmt.setString(2, product.getName()); pstmt.setLong(3, product.getPricePaise());
+            pstmt.setInt(4, product.getStockQuantity()); pstmt.setDouble(5, product.getTaxSlab()); pstmt.setInt(6, product.getReorderLevel());
             pstmt.executeUpdate();
+            ProductCatalog.productAdded(product);
+            EventBus.publish(new ProductChangedEvent(product.getBarcode()));
             return true;
         } catch (SQLException e) { System.err.println("Error adding product: " + e.getMessage()); return false; }
     }
     public static Product findProductByBarcode(String barcode) {
         String sql = "SELECT * FROM products WHERE barcode = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setString(1, barcode);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) { return new Product(rs.getString("barcode"), rs.getString("name"), rs.getDouble("price"), rs.getInt("stock_quantity"), rs.getDouble("tax_slab")); }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) { return readProduct(rs); }
+            }
         } catch (SQLException e) { System.err.println("Error finding product: " + e.getMessage()); }
         return null;
     }
      public static List<Product> findProductsByName(String name) {
         List<Product> products = new ArrayList<>();
         String sql = "SELECT * FROM products WHERE name LIKE ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setString(1, "%" + name + "%");
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                products.add(new Product(rs.getString("barcode"), rs.getString("name"), rs.getDouble("price"), rs.getInt("stock_quantity"), rs.getDouble("tax_slab")));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(readProduct(rs));
+                }
             }
         } catch (SQLException e) { System.err.println("Error finding products by name: " + e.getMessage()); }
         return products;
     }
+    /**
+     * Searches product names using the given mode, best matches first.
+     * FULL_TEXT matches every word of the query as a token prefix ("coca co" finds "Coca Cola 500ml")
+     * and falls back to LIKE if the database has no products_fts index.
+     *
+     * @param name The text to search for.
+     * @param mode How to search.
+     * @param limit The maximum number of products to return.
+     * @return Matching products.
+     */
+    public static List<Product> findProductsByName(String name, ProductSearchMode mode, int limit) {
+        String matchQuery = toFtsQuery(name);
+        if (mode == ProductSearchMode.LIKE || matchQuery.isEmpty() || !isFullTextSearchAvailable()) {
+            List<Product> matches = findProductsByName(name);
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        }
+        List<Product> products = new ArrayList<>();
+        String sql = "SELECT p.* FROM products_fts f JOIN products p ON p.rowid = f.rowid WHERE products_fts MATCH ? ORDER BY f.rank, length(p.name) LIMIT ?";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setString(1, matchQuery);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(readProduct(rs));
+                }
+            }
+        } catch (SQLException e) { System.err.println("Error searching products: " + e.getMessage()); }
+        return products;
+    }
+    /**
+     * @return Whether the products_fts full-text index exists in this database.
+     */
+    public static synchronized boolean isFullTextSearchAvailable() {
+        if (fullTextSearchAvailable == null) {
+            try (ConnectionPool.Lease lease = pool().reader(); ResultSet rs = lease.prepare("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'products_fts'").executeQuery()) {
+                fullTextSearchAvailable = rs.next();
+            } catch (SQLException e) { System.err.println("Error checking for full-text index: " + e.getMessage()); return false; }
+        }
+        return fullTextSearchAvailable;
+    }
+    /**
+     * Turns free text into an FTS5 query: each word becomes a quoted prefix term, and all terms must match.
+     */
+    private static String toFtsQuery(String text) {
+        StringBuilder query = new StringBuilder();
+        for (String token : ProductNameIndex.normalize(text).split(" ")) {
+            if (token.isEmpty()) continue;
+            if (query.length() > 0) query.append(' ');
+            query.append('"').append(token).append("\"*");
+        }
+        return query.toString();
+    }
     public static List<Product> getAllProducts() {
         List<Product> products = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT * FROM products ORDER BY name ASC")) {
-            while (rs.next()) { products.add(new Product(rs.getString("barcode"), rs.getString("name"), rs.getDouble("price"), rs.getInt("stock_quantity"), rs.getDouble("tax_slab"))); }
+        try (ConnectionPool.Lease lease = pool().reader(); ResultSet rs = lease.prepare("SELECT * FROM products ORDER BY name ASC").executeQuery()) {
+            while (rs.next()) { products.add(readProduct(rs)); }
         } catch (SQLException e) { System.err.println("Error fetching all products: " + e.getMessage()); }
         return products;
     }
+    private static Product readProduct(ResultSet rs) throws SQLException {
+        return new Product(rs.getString("barcode"), rs.getString("name"), rs.getLong("price_paise"), rs.getInt("stock_quantity"), rs.getDouble("tax_slab"), rs.getInt("reorder_level"));
+    }
     public static boolean updateStock(String barcode, int quantityChange) {
         String sql = "UPDATE products SET stock_quantity = stock_quantity + ? WHERE barcode = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool().writer()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setInt(1, quantityChange); pstmt.setString(2, barcode);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() == 0) return false;
+            ProductCatalog.stockChanged(barcode, quantityChange);
+            EventBus.publish(new ProductChangedEvent(barcode));
+            return true;
         } catch (SQLException e) { System.err.println("Error updating stock: " + e.getMessage()); return false; }
     }
+    /**
+     * Sets the stock level at or below which a product is reported as needing reorder.
+     * @return true if the product exists and was updated.
+     */
+    public static boolean updateReorderLevel(String barcode, int reorderLevel) {
+        String sql = "UPDATE products SET reorder_level = ? WHERE barcode = ?";
+        try (ConnectionPool.Lease lease = pool().writer()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setInt(1, reorderLevel); pstmt.setString(2, barcode);
+            if (pstmt.executeUpdate() == 0) return false;
+            ProductCatalog.reorderLevelChanged(barcode, reorderLevel);
+            EventBus.publish(new ProductChangedEvent(barcode));
+            return true;
+        } catch (SQLException e) { System.err.println("Error updating reorder level: " + e.getMessage()); return false; }
+    }
     public static boolean deleteProductByBarcode(String barcode) {
         String sql = "DELETE FROM products WHERE barcode = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool().writer()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setString(1, barcode);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() == 0) return false;
+            ProductCatalog.productDeleted(barcode);
+            EventBus.publish(new ProductChangedEvent(barcode));
+            return true;
         } catch (SQLException e) { System.err.println("Error deleting product: " + e.getMessage()); return false; }
     }
-    public static long saveBill(Map<Product, Integer> billItems, double totalAmount) throws SQLException {
-        String billSql = "INSERT INTO bills(bill_date, total_amount) VALUES(?, ?)";
-        String itemSql = "INSERT INTO bill_items(bill_id, product_barcode, quantity, price_per_item) VALUES(?, ?, ?, ?)";
+    /**
+     * Saves a bill, its items and the matching stock decrements in one transaction, waiting for the commit.
+     * Checkout uses {@link #submitBill} instead.
+     *
+     * @param billItems The products sold and their quantities.
+     * @param totalPaise The amount charged after discount, in paise.
+     * @return The new bill id.
+     * @throws SQLException If the transaction fails; nothing is written in that case.
+     */
+    public static long saveBill(Map<Product, Integer> billItems, long totalPaise) throws SQLException {
+        return saveBills(List.of(BillCommitPipeline.PendingBill.of(billItems, totalPaise, System.currentTimeMillis(), null)))[0];
+    }
+    /**
+     * Queues a bill for write-behind group commit (see {@link BillCommitPipeline}).
+     * Returns as soon as the bill is safely journaled on disk.
+     *
+     * @param billItems The products sold and their quantities; copied, so the caller may clear the map.
+     * @param totalPaise The amount charged after discount, in paise.
+     * @param billTimeMillis The bill time in epoch millis; pass the same value to its receipt.
+     * @return A future completing with the bill id once the bill is committed.
+     * @throws IOException If the bill could not be journaled; nothing was saved.
+     */
+    public static CompletableFuture<Long> submitBill(Map<Product, Integer> billItems, long totalPaise, long billTimeMillis) throws IOException {
+        return billPipeline().submit(billItems, totalPaise, billTimeMillis);
+    }
+    /**
+     * Saves several bills in a single transaction: all of them are committed or none are.
+     * The daily sales rollups (see {@link SalesRollups}) are updated in the same transaction.
+     * @return The new bill ids, in the same order as the bills.
+     * @throws SQLException If the transaction fails; nothing is written in that case. Once it has
+     *                      committed, nothing is thrown: see {@link #billsCommitted}.
+     */
+    static long[] saveBills(List<BillCommitPipeline.PendingBill> bills) throws SQLException {
+        String billSql = "INSERT INTO bills(bill_date, total_paise, commit_token) VALUES(?, ?, ?)";
+        String itemSql = "INSERT INTO bill_items(bill_id, product_barcode, quantity, price_paise) VALUES(?, ?, ?, ?)";
         String updateStockSql = "UPDATE products SET stock_quantity = stock_quantity - ? WHERE barcode = ?";
-        Connection conn = null;
-        try {
-            conn = DriverManager.getConnection(DB_URL);
+        long[] billIds = new long[bills.size()];
+        try (ConnectionPool.Lease lease = pool().writer()) {
+            Connection conn = lease.connection();
             conn.setAutoCommit(false);
-            long billId;
-            try (PreparedStatement billPstmt = conn.prepareStatement(billSql, Statement.RETURN_GENERATED_KEYS)) {
-                billPstmt.setString(1, new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new java.util.Date()));
-                billPstmt.setDouble(2, totalAmount);
-                billPstmt.executeUpdate();
-                try (ResultSet generatedKeys = billPstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) { billId = generatedKeys.getLong(1); } 
-                    else { throw new SQLException("Creating bill failed, no ID obtained."); }
-                }
-            }
-            try (PreparedStatement itemPstmt = conn.prepareStatement(itemSql);
-                 PreparedStatement stockPstmt = conn.prepareStatement(updateStockSql)) {
-                for (Map.Entry<Product, Integer> entry : billItems.entrySet()) {
-                    Product product = entry.getKey();
-                    int quantity = entry.getValue();
-                    itemPstmt.setLong(1, billId); itemPstmt.setString(2, product.getBarcode());
-                    itemPstmt.setInt(3, quantity); itemPstmt.setDouble(4, product.getPrice());
-                    itemPstmt.addBatch();
-                    stockPstmt.setInt(1, quantity); stockPstmt.setString(2, product.getBarcode());
-                    stockPstmt.addBatch();
+            try {
+                PreparedStatement billPstmt = lease.prepare(billSql, Statement.RETURN_GENERATED_KEYS);
+                PreparedStatement itemPstmt = lease.prepare(itemSql);
+                PreparedStatement stockPstmt = lease.prepare(updateStockSql);
+                PreparedStatement dailyPstmt = lease.prepare(SalesRollups.ADD_BILL_SQL);
+                PreparedStatement productDailyPstmt = lease.prepare(SalesRollups.ADD_ITEM_SQL);
+                for (int b = 0; b < bills.size(); b++) {
+                    BillCommitPipeline.PendingBill bill = bills.get(b);
+                    long billId;
+                    billPstmt.setLong(1, bill.billTimeMillis);
+                    billPstmt.setLong(2, bill.totalPaise);
+                    billPstmt.setString(3, bill.commitToken);
+                    billPstmt.executeUpdate();
+                    try (ResultSet generatedKeys = billPstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) { billId = generatedKeys.getLong(1); } 
+                        else { throw new SQLException("Creating bill failed, no ID obtained."); }
+                    }
+                    String day = SalesRollups.dayOf(bill.billTimeMillis);
+                    dailyPstmt.setString(1, day); dailyPstmt.setLong(2, bill.totalPaise);
+                    dailyPstmt.addBatch();
+                    for (int i = 0; i < bill.size(); i++) {
+                        productDailyPstmt.setString(1, day); productDailyPstmt.setString(2, bill.barcodes[i]); productDailyPstmt.setInt(3, bill.quantities[i]);
+                        productDailyPstmt.addBatch();
+                        itemPstmt.setLong(1, billId); itemPstmt.setString(2, bill.barcodes[i]);
+                        itemPstmt.setInt(3, bill.quantities[i]); itemPstmt.setLong(4, bill.pricesPaise[i]);
+                        itemPstmt.addBatch();
+                        stockPstmt.setInt(1, bill.quantities[i]); stockPstmt.setString(2, bill.barcodes[i]);
+                        stockPstmt.addBatch();
+                    }
+                    billIds[b] = billId;
                 }
                 itemPstmt.executeBatch();
                 stockPstmt.executeBatch();
+                dailyPstmt.executeBatch();
+                productDailyPstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Error during rollback: " + ex.getMessage()); }
+                throw new SQLException("Transaction failed: " + e.getMessage(), e);
+            } finally {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { System.err.println("Error restoring auto-commit: " + ex.getMessage()); }
             }
-            conn.commit();
-            return billId;
-        } catch (SQLException e) {
-            if (conn != null) try { conn.rollback(); } catch (SQLException ex) { System.err.println("Error during rollback: " + ex.getMessage()); }
-            throw new SQLException("Transaction failed: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ex) { System.err.println("Error closing connection: " + ex.getMessage()); }
         }
+        billsCommitted(bills, billIds);
+        return billIds;
     }
-    public static List<Object[]> getSalesHistory(String filter) {
-        List<Object[]> history = new ArrayList<>();
-        String sql = "SELECT bill_id, bill_date, total_amount FROM bills ";
-        LocalDate now = LocalDate.now();
-        String startDate = ""; String endDate = now.format(DateTimeFormatter.ISO_LOCAL_DATE) + " 23:59:59";
-        switch (filter) {
-            case "Today": startDate = now.format(DateTimeFormatter.ISO_LOCAL_DATE) + " 00:00:00"; break;
-            case "This Week": startDate = now.with(java.time.DayOfWeek.MONDAY).format(DateTimeFormatter.ISO_LOCAL_DATE) + " 00:00:00"; break;
-            case "This Month": startDate = now.withDayOfMonth(1).format(DateTimeFormatter.ISO_LOCAL_DATE) + " 00:00:00"; break;
+    /**
+     * Brings the in-memory caches up to date with committed bills and announces them. Runs after the
+     * writer is released, and only logs failures: the bills are saved whatever happens here, and
+     * failing them would have the cashier ring them up again.
+     */
+    private static void billsCommitted(List<BillCommitPipeline.PendingBill> bills, long[] billIds) {
+        for (int b = 0; b < bills.size(); b++) {
+            BillCommitPipeline.PendingBill bill = bills.get(b);
+            try {
+                for (int i = 0; i < bill.size(); i++) ProductCatalog.stockChanged(bill.barcodes[i], -bill.quantities[i]);
+                TopSellers.billCommitted(billIds[b], bill.billTimeMillis, bill.barcodes, bill.quantities);
+            } catch (RuntimeException e) {
+                System.err.println("Error updating caches for committed bill " + billIds[b] + ": " + e);
+            }
+            try {
+                EventBus.publish(new BillCommittedEvent(billIds[b], bill.billTimeMillis, bill.totalPaise, bill.barcodes, bill.quantities));
+            } catch (RuntimeException e) {
+                System.err.println("Error announcing committed bill " + billIds[b] + ": " + e);
+            }
+        }
+    }
+    /**
+     * @return The id of the bill saved with the given commit token, or null if there is none.
+     */
+    static Long findBillIdByCommitToken(String commitToken) throws SQLException {
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare("SELECT bill_id FROM bills WHERE commit_token = ?");
+            pstmt.setString(1, commitToken);
+            try (ResultSet rs = pstmt.executeQuery()) { return rs.next() ? rs.getLong(1) : null; }
         }
-        sql += "WHERE bill_date BETWEEN ? AND ? ORDER BY bill_date DESC";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, startDate); pstmt.setString(2, endDate);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) { history.add(new Object[]{rs.getLong("bill_id"), rs.getString("bill_date"), rs.getDouble("total_amount")}); }
-        } catch (SQLException e) { System.err.println("Error fetching sales history: " + e.getMessage()); }
-        return history;
     }
+    /**
+     * @return The items of a bill as {name, quantity, price in paise, line total in paise}.
+     */
     public static List<Object[]> getBillDetails(long billId) {
         List<Object[]> items = new ArrayList<>();
-        String sql = "SELECT p.name, bi.quantity, bi.price_per_item, (bi.quantity * bi.price_per_item) AS total FROM bill_items bi JOIN products p ON bi.product_barcode = p.barcode WHERE bi.bill_id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        String sql = "SELECT p.name, bi.quantity, bi.price_paise, (bi.quantity * bi.price_paise) AS total_paise FROM bill_items bi JOIN products p ON bi.product_barcode = p.barcode WHERE bi.bill_id = ?";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
             pstmt.setLong(1, billId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) { items.add(new Object[] {rs.getString("name"), rs.getInt("quantity"), rs.getDouble("price_per_item"), rs.getDouble("total")}); }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) { items.add(new Object[] {rs.getString("name"), rs.getInt("quantity"), rs.getLong("price_paise"), rs.getLong("total_paise")}); }
+            }
         } catch (SQLException e) { System.err.println("Error fetching bill details: " + e.getMessage()); }
         return items;
     }
-    public static double getTodaysTotalSales() {
-        String today = LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
-        String sql = "SELECT SUM(total_amount) FROM bills WHERE bill_date >= ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, today + " 00:00:00");
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) return rs.getDouble(1);
+    /**
+     * Reads a bill and its items for re-rendering its receipt.
+     * @return The bill, or null if there is no such bill.
+     * @throws SQLException If it could not be read.
+     */
+    public static BillReceipt getBillReceipt(long billId) throws SQLException {
+        String billSql = "SELECT bill_date, total_paise FROM bills WHERE bill_id = ?";
+        String itemSql = "SELECT bi.product_barcode, COALESCE(p.name, bi.product_barcode), bi.quantity, bi.price_paise, COALESCE(p.tax_slab, 0) "
+                + "FROM bill_items bi LEFT JOIN products p ON bi.product_barcode = p.barcode WHERE bi.bill_id = ? ORDER BY bi.item_id";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            Connection conn = lease.connection();
+            // One read transaction, so the bill and its items are seen together.
+            conn.setAutoCommit(false);
+            long billTime, totalPaise;
+            PreparedStatement billPstmt = lease.prepare(billSql);
+            billPstmt.setLong(1, billId);
+            try (ResultSet rs = billPstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                billTime = rs.getLong(1);
+                totalPaise = rs.getLong(2);
+            }
+            Map<Product, Integer> items = new LinkedHashMap<>();
+            PreparedStatement itemPstmt = lease.prepare(itemSql);
+            itemPstmt.setLong(1, billId);
+            try (ResultSet rs = itemPstmt.executeQuery()) {
+                while (rs.next()) items.merge(new Product(rs.getString(1), rs.getString(2), rs.getLong(4), 0, rs.getDouble(5)), rs.getInt(3), Integer::sum);
+            }
+            return new BillReceipt(billId, billTime, totalPaise, items);
+        }
+    }
+    /**
+     * @return The sum of today's bill totals, in paise, read from the daily rollup.
+     */
+    public static long getTodaysTotalSales() {
+        String sql = "SELECT total_paise FROM sales_daily WHERE day = ?";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setString(1, LocalDate.now(DateTimes.ZONE).toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) return rs.getLong(1);
+            }
         } catch (SQLException e) { System.err.println("Error fetching today's sales: " + e.getMessage()); }
-        return 0.0;
+        return 0;
     }
     public static int getTodaysBillCount() {
-        String today = LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
-        String sql = "SELECT COUNT(*) FROM bills WHERE bill_date >= ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, today + " 00:00:00");
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) return rs.getInt(1);
+        String sql = "SELECT bill_count FROM sales_daily WHERE day = ?";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setString(1, LocalDate.now(DateTimes.ZONE).toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
         } catch (SQLException e) { System.err.println("Error fetching today's bill count: " + e.getMessage()); }
         return 0;
     }
-    public static List<Product> getLowStockProducts(int threshold) {
+    /**
+     * Reads the dashboard figures from the rollup tables as one consistent snapshot. Bills with an id
+     * above {@link SalesSnapshot#lastBillId} are not included and can be applied on top of it.
+     * @return The snapshot, or null if it could not be read.
+     */
+    public static SalesSnapshot getSalesSnapshot() {
+        LocalDate today = LocalDate.now(DateTimes.ZONE);
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            Connection conn = lease.connection();
+            // One read transaction, so every figure reflects the same set of committed bills.
+            conn.setAutoCommit(false);
+            long lastBillId = 0, sales = 0;
+            int billCount = 0;
+            try (ResultSet rs = lease.prepare("SELECT COALESCE(MAX(bill_id), 0) FROM bills").executeQuery()) {
+                if (rs.next()) lastBillId = rs.getLong(1);
+            }
+            PreparedStatement dailyPstmt = lease.prepare("SELECT total_paise, bill_count FROM sales_daily WHERE day = ?");
+            dailyPstmt.setString(1, today.toString());
+            try (ResultSet rs = dailyPstmt.executeQuery()) {
+                if (rs.next()) { sales = rs.getLong(1); billCount = rs.getInt(2); }
+            }
+            return new SalesSnapshot(lastBillId, sales, billCount);
+        } catch (SQLException e) { System.err.println("Error fetching dashboard snapshot: " + e.getMessage()); return null; }
+    }
+    /**
+     * Reads the per-product daily rollup from a given day onwards as one consistent snapshot.
+     * @param since The first day to include.
+     * @return The snapshot, or null if it could not be read.
+     */
+    public static DailyProductSales getDailyProductSalesSince(LocalDate since) {
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            long lastBillId = 0;
+            try (ResultSet rs = lease.prepare("SELECT COALESCE(MAX(bill_id), 0) FROM bills").executeQuery()) {
+                if (rs.next()) lastBillId = rs.getLong(1);
+            }
+            List<Object[]> rows = new ArrayList<>();
+            PreparedStatement pstmt = lease.prepare("SELECT day, product_barcode, quantity FROM product_sales_daily WHERE day >= ?");
+            pstmt.setString(1, since.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) rows.add(new Object[]{rs.getString(1), rs.getString(2), rs.getLong(3)});
+            }
+            return new DailyProductSales(lastBillId, rows);
+        } catch (SQLException e) { System.err.println("Error fetching daily product sales: " + e.getMessage()); return null; }
+    }
+    /**
+     * Recomputes the daily sales rollups from bills and bill_items in one transaction.
+     * Only needed if bills were edited outside the application.
+     * @return True if the rebuild committed.
+     */
+    public static boolean rebuildSalesRollups() {
+        try (ConnectionPool.Lease lease = pool().writer()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
+            try {
+                SalesRollups.rebuild(conn);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) { System.err.println("Error rebuilding sales rollups: " + e.getMessage()); return false; }
+    }
+    /**
+     * Products at or below their own reorder level, furthest below first. Reads only the matching
+     * rows through idx_products_stock_margin; {@link LowStockWatcher} answers the same question from memory.
+     */
+    public static List<Product> getLowStockProducts() {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products WHERE stock_quantity <= ? AND stock_quantity > 0 ORDER BY stock_quantity ASC";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, threshold);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) { products.add(new Product(rs.getString("barcode"), rs.getString("name"), rs.getDouble("price"), rs.getInt("stock_quantity"), rs.getDouble("tax_slab"))); }
+        String sql = "SELECT * FROM products WHERE stock_quantity - reorder_level <= 0 ORDER BY stock_quantity - reorder_level, barcode";
+        try (ConnectionPool.Lease lease = pool().reader(); ResultSet rs = lease.prepare(sql).executeQuery()) {
+            while (rs.next()) { products.add(readProduct(rs)); }
         } catch (SQLException e) { System.err.println("Error fetching low stock products: " + e.getMessage()); }
         return products;
     }
     public static List<Object[]> getTopSellingProductsThisMonth(int limit) {
+        return getTopSellingProductsSince(LocalDate.now(DateTimes.ZONE).withDayOfMonth(1), limit);
+    }
+    /**
+     * Exact best sellers from the daily rollup, aggregated over every day from the given one onwards.
+     * @return Rows of {product name, units sold}, best seller first.
+     */
+    public static List<Object[]> getTopSellingProductsSince(LocalDate since, int limit) {
         List<Object[]> products = new ArrayList<>();
-        String firstDayOfMonth = LocalDate.now().withDayOfMonth(1).format(DateTimeFormatter.ISO_LOCAL_DATE);
-        String sql = "SELECT p.name, SUM(bi.quantity) as total_sold FROM bill_items bi JOIN products p ON bi.product_barcode = p.barcode JOIN bills b ON bi.bill_id = b.bill_id WHERE b.bill_date >= ? GROUP BY p.name ORDER BY total_sold DESC LIMIT ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, firstDayOfMonth + " 00:00:00");
+        String sql = "SELECT p.name, SUM(s.quantity) as total_sold FROM product_sales_daily s JOIN products p ON s.product_barcode = p.barcode WHERE s.day >= ? GROUP BY p.name ORDER BY total_sold DESC LIMIT ?";
+        try (ConnectionPool.Lease lease = pool().reader()) {
+            PreparedStatement pstmt = lease.prepare(sql);
+            pstmt.setString(1, since.toString());
             pstmt.setInt(2, limit);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) { products.add(new Object[]{rs.getString("name"), rs.getInt("total_sold")}); }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) { products.add(new Object[]{rs.getString("name"), rs.getInt("total_sold")}); }
+            }
         } catch (SQLException e) { System.err.println("Error fetching top selling products: " + e.getMessage()); }
         return products;
     }
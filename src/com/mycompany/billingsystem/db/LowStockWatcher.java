@@ -0,0 +1,110 @@
+package com.mycompany.billingsystem.db;
+
+import com.mycompany.billingsystem.event.EventBus;
+import com.mycompany.billingsystem.event.LowStockEvent;
+import com.mycompany.billingsystem.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps every product ordered by its stock margin (stock minus reorder level), so the products
+ * that need reordering are always the head of the set and are listed without scanning the table.
+ *
+ * It is fed by {@link ProductCatalog}, which sees every product write, and publishes a
+ * {@link LowStockEvent} whenever a change moves a product across its reorder level or changes
+ * the stock of a product that is already low. A product is low when its stock is at or below its
+ * reorder level; sold-out products are the most urgent and come first.
+ */
+public final class LowStockWatcher {
+
+    private static final Comparator<Product> BY_MARGIN = Comparator.comparingInt(LowStockWatcher::margin).thenComparing(Product::getBarcode);
+
+    private static final Object lock = new Object();
+    private static final Map<String, Product> tracked = new HashMap<>();
+    private static final TreeSet<Product> byMargin = new TreeSet<>(BY_MARGIN);
+    private static volatile boolean loaded = false;
+
+    private LowStockWatcher() {}
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Whether the product's stock is at or below its reorder level.
+     */
+    public static boolean isLow(Product product) {
+        return margin(product) <= 0;
+    }
+
+    /**
+     * @return Every product at or below its reorder level, furthest below first.
+     */
+    public static List<Product> getLowStock() {
+        List<Product> products = new ArrayList<>();
+        synchronized (lock) {
+            for (Product product : byMargin) {
+                if (!isLow(product)) break;
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    private static int margin(Product product) {
+        return product.getStockQuantity() - product.getReorderLevel();
+    }
+
+    // --- Notifications from ProductCatalog ---
+
+    /**
+     * Replaces everything tracked with a freshly loaded product list. No events are published.
+     */
+    static void rebuild(Collection<Product> products) {
+        synchronized (lock) {
+            tracked.clear();
+            byMargin.clear();
+            for (Product product : products) {
+                tracked.put(product.getBarcode(), product);
+                byMargin.add(product);
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Records the current state of a new or changed product.
+     */
+    static void update(Product product) {
+        if (!loaded) return;
+        Product previous;
+        synchronized (lock) {
+            previous = tracked.put(product.getBarcode(), product);
+            if (previous != null) byMargin.remove(previous);
+            byMargin.add(product);
+        }
+        boolean wasLow = previous != null && isLow(previous);
+        boolean low = isLow(product);
+        if (low || wasLow) {
+            EventBus.publish(new LowStockEvent(product.getBarcode(), product.getName(), product.getStockQuantity(), product.getReorderLevel(), wasLow, low));
+        }
+    }
+
+    static void remove(String barcode) {
+        if (!loaded) return;
+        Product previous;
+        synchronized (lock) {
+            previous = tracked.remove(barcode);
+            if (previous != null) byMargin.remove(previous);
+        }
+        if (previous != null && isLow(previous)) {
+            EventBus.publish(new LowStockEvent(barcode, previous.getName(), previous.getStockQuantity(), previous.getReorderLevel(), true, false));
+        }
+    }
+}
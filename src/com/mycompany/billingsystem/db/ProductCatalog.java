@@ -0,0 +1,211 @@
+package com.mycompany.billingsystem.db;
+
+import com.mycompany.billingsystem.model.Product;
+import com.mycompany.billingsystem.util.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * An in-memory cache of the whole product table, indexed by barcode and by name.
+ * Scanning an item becomes a hash lookup instead of a database round-trip, and name searches
+ * are answered by a {@link ProductNameIndex} instead of a LIKE scan.
+ *
+ * The catalog is loaded once at startup and kept consistent by {@link DatabaseManager},
+ * which notifies it after every successful product write (add, stock update, delete and bill save).
+ * The catalog passes each change on to the {@link LowStockWatcher}.
+ * Until the initial load finishes, lookups fall through to the database.
+ *
+ * With -Dbilling.search.mode=fts, name searches go to the SQLite FTS5 index instead and the
+ * in-memory name index is never built, which keeps startup cheap for very large catalogs.
+ */
+public final class ProductCatalog {
+
+    /** Default cap on name search results shown to the cashier. */
+    public static final int DEFAULT_SEARCH_LIMIT = 50;
+
+    private static final Map<String, Product> byBarcode = new ConcurrentHashMap<>();
+    private static final boolean USE_FULL_TEXT_SEARCH = "fts".equalsIgnoreCase(System.getProperty("billing.search.mode", "memory"));
+
+    private static final ProductNameIndex nameIndex = new ProductNameIndex();
+    /** Barcodes in sorted order, so a partly typed barcode is a range lookup. */
+    private static final ConcurrentSkipListSet<String> sortedBarcodes = new ConcurrentSkipListSet<>();
+    /** Barcodes written while the initial load was running; re-read once it finishes. */
+    private static final Set<String> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private static volatile boolean loaded = false;
+
+    private ProductCatalog() {}
+
+    /**
+     * Loads every product from the database and builds the barcode index.
+     * Safe to call again to force a full reload.
+     */
+    public static synchronized void load() {
+        long start = System.nanoTime();
+        loaded = false;
+        changedDuringLoad.clear();
+        List<Product> products = DatabaseManager.getAllProducts();
+        byBarcode.clear();
+        sortedBarcodes.clear();
+        Map<String, String> names = new HashMap<>(products.size() * 2);
+        for (Product product : products) {
+            byBarcode.put(product.getBarcode(), product);
+            sortedBarcodes.add(product.getBarcode());
+            names.put(product.getBarcode(), product.getName());
+        }
+        if (!USE_FULL_TEXT_SEARCH) nameIndex.rebuild(names);
+        LowStockWatcher.rebuild(products);
+        loaded = true;
+        // Anything written while the snapshot was being read may be stale; fetch those rows again.
+        for (String barcode : changedDuringLoad) refresh(barcode);
+        changedDuringLoad.clear();
+        System.out.printf("Product catalog loaded: %d products in %.1f ms%n", byBarcode.size(), (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Loads the catalog on the scheduler's background lane so startup is not delayed.
+     */
+    public static void loadAsync() {
+        TaskScheduler.run(TaskScheduler.Lane.BACKGROUND, ProductCatalog::load);
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Finds a product by its exact barcode.
+     * @param barcode The barcode to look up.
+     * @return The product, or null if there is none.
+     */
+    public static Product findByBarcode(String barcode) {
+        if (!loaded) return DatabaseManager.findProductByBarcode(barcode);
+        return byBarcode.get(barcode);
+    }
+
+    /**
+     * Finds products by name, returning at most {@link #DEFAULT_SEARCH_LIMIT} results.
+     * @param name The text to search for.
+     * @return Matching products, best match first.
+     */
+    public static List<Product> findByName(String name) {
+        return search(name, DEFAULT_SEARCH_LIMIT);
+    }
+
+    /**
+     * Ranked name search: exact matches first, then name prefixes, word prefixes and substrings.
+     * Case and punctuation are ignored.
+     *
+     * @param query The text typed by the user.
+     * @param limit The maximum number of results.
+     * @return Matching products, best match first.
+     */
+    public static List<Product> search(String query, int limit) {
+        if (USE_FULL_TEXT_SEARCH) return DatabaseManager.findProductsByName(query, ProductSearchMode.FULL_TEXT, limit);
+        if (!loaded) {
+            List<Product> matches = DatabaseManager.findProductsByName(query);
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        }
+        List<Product> matches = new ArrayList<>();
+        for (String barcode : nameIndex.search(query, limit)) {
+            Product product = byBarcode.get(barcode);
+            if (product != null) matches.add(product);
+        }
+        return matches;
+    }
+
+    /**
+     * Type-ahead suggestions answered from memory only, so they are cheap enough to run on every
+     * keystroke: products whose barcode starts with the query come first, then name matches
+     * ranked as in {@link #search}. Returns nothing until the catalog has loaded. With
+     * -Dbilling.search.mode=fts there is no in-memory name index, so only barcodes are suggested.
+     *
+     * @param query The text typed so far.
+     * @param limit The maximum number of suggestions.
+     * @return Suggested products, best first.
+     */
+    public static List<Product> suggest(String query, int limit) {
+        List<Product> suggestions = new ArrayList<>();
+        String q = query.trim();
+        if (!loaded || q.isEmpty() || limit <= 0) return suggestions;
+        if (q.indexOf(' ') < 0) {
+            for (String barcode : sortedBarcodes.subSet(q, true, q + Character.MAX_VALUE, false)) {
+                Product product = byBarcode.get(barcode);
+                if (product != null) suggestions.add(product);
+                if (suggestions.size() == limit) return suggestions;
+            }
+        }
+        if (USE_FULL_TEXT_SEARCH) return suggestions;
+        for (String barcode : nameIndex.search(q, limit)) {
+            Product product = byBarcode.get(barcode);
+            if (product != null && !suggestions.contains(product)) suggestions.add(product);
+            if (suggestions.size() == limit) break;
+        }
+        return suggestions;
+    }
+
+    /**
+     * @return Every product in the catalog, sorted by name.
+     */
+    public static List<Product> getAll() {
+        if (!loaded) return DatabaseManager.getAllProducts();
+        List<Product> products = new ArrayList<>(byBarcode.values());
+        products.sort(Comparator.comparing(Product::getName));
+        return products;
+    }
+
+    public static int size() {
+        return byBarcode.size();
+    }
+
+    // --- Write notifications from DatabaseManager ---
+
+    static void productAdded(Product product) {
+        if (!loaded) changedDuringLoad.add(product.getBarcode());
+        byBarcode.put(product.getBarcode(), product);
+        sortedBarcodes.add(product.getBarcode());
+        if (!USE_FULL_TEXT_SEARCH) nameIndex.add(product.getBarcode(), product.getName());
+        LowStockWatcher.update(product);
+    }
+
+    static void stockChanged(String barcode, int quantityChange) {
+        if (!loaded) changedDuringLoad.add(barcode);
+        Product updated = byBarcode.computeIfPresent(barcode, (key, product) -> product.withStockQuantity(product.getStockQuantity() + quantityChange));
+        if (updated != null) LowStockWatcher.update(updated);
+    }
+
+    static void reorderLevelChanged(String barcode, int reorderLevel) {
+        if (!loaded) changedDuringLoad.add(barcode);
+        Product updated = byBarcode.computeIfPresent(barcode, (key, product) -> product.withReorderLevel(reorderLevel));
+        if (updated != null) LowStockWatcher.update(updated);
+    }
+
+    static void productDeleted(String barcode) {
+        if (!loaded) changedDuringLoad.add(barcode);
+        byBarcode.remove(barcode);
+        sortedBarcodes.remove(barcode);
+        nameIndex.remove(barcode);
+        LowStockWatcher.remove(barcode);
+    }
+
+    private static void refresh(String barcode) {
+        Product product = DatabaseManager.findProductByBarcode(barcode);
+        if (product == null) {
+            byBarcode.remove(barcode);
+            sortedBarcodes.remove(barcode);
+            nameIndex.remove(barcode);
+            LowStockWatcher.remove(barcode);
+        } else {
+            byBarcode.put(barcode, product);
+            sortedBarcodes.add(barcode);
+            if (!USE_FULL_TEXT_SEARCH) nameIndex.add(barcode, product.getName());
+            LowStockWatcher.update(product);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.mycompany.billingsystem.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory search index over product names, answering the till's name lookups without
+ * touching SQLite. It combines two structures:
+ * <ul>
+ *   <li>a trie of the individual words in every name, for prefix matching ("coc" finds "Coca Cola"), and</li>
+ *   <li>trigram posting lists over the whole name, for substring matching ("ola" finds "Coca Cola").</li>
+ * </ul>
+ * Products are assigned compact int ids and posting lists are sorted int arrays, which keeps
+ * the index small enough for catalogs of hundreds of thousands of SKUs.
+ *
+ * Results are ranked: exact name, then name prefix, then word prefix, then plain substring;
+ * ties are broken by shorter name and then alphabetically.
+ *
+ * The index is updated incrementally. Removing a product only tombstones its id; the postings
+ * are compacted once tombstones make up a quarter of all ids.
+ */
+final class ProductNameIndex {
+
+    /** Upper bound on matches ranked per query, so very short queries stay fast. */
+    private static final int MAX_CANDIDATES = 2_000;
+    /** Upper bound on postings examined per query by each of the prefix and substring passes. */
+    private static final int MAX_SCANNED = 10_000;
+
+    private static final int RANK_EXACT = 0, RANK_NAME_PREFIX = 1, RANK_WORD_PREFIX = 2, RANK_SUBSTRING = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] barcodeById = new String[1024];
+    private String[] nameById = new String[1024];
+    private final Map<String, Integer> idByBarcode = new HashMap<>();
+    /** Ids keyed by normalized full name, so exact matches are never lost to the candidate cap. */
+    private Map<String, IntList> idsByName = new HashMap<>();
+    private int nextId = 0;
+    private int tombstones = 0;
+
+    private TrieNode wordTrie = new TrieNode();
+    private Map<Long, IntList> trigramPostings = new HashMap<>();
+
+    /**
+     * Adds a product to the index, replacing any earlier entry for the same barcode.
+     */
+    void add(String barcode, String name) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(barcode);
+            String normalized = normalize(name);
+            // Ids only ever grow, so appending to the posting lists keeps them sorted.
+            int id = nextId++;
+            if (id == barcodeById.length) {
+                barcodeById = Arrays.copyOf(barcodeById, id * 2);
+                nameById = Arrays.copyOf(nameById, id * 2);
+            }
+            barcodeById[id] = barcode;
+            nameById[id] = normalized;
+            idByBarcode.put(barcode, id);
+            indexName(id, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index. Unknown barcodes are ignored.
+     */
+    void remove(String barcode) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(barcode);
+            if (tombstones > 1_024 && tombstones * 4 > nextId) compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops everything and indexes the given products from scratch.
+     * @param names Product names keyed by barcode.
+     */
+    void rebuild(Map<String, String> names) {
+        lock.writeLock().lock();
+        try {
+            int capacity = Math.max(1024, names.size() + names.size() / 4);
+            barcodeById = new String[capacity];
+            nameById = new String[capacity];
+            idByBarcode.clear();
+            nextId = 0;
+            tombstones = 0;
+            wordTrie = new TrieNode();
+            trigramPostings = new HashMap<>();
+            idsByName = new HashMap<>();
+            for (Map.Entry<String, String> entry : names.entrySet()) {
+                int id = nextId++;
+                String normalized = normalize(entry.getValue());
+                barcodeById[id] = entry.getKey();
+                nameById[id] = normalized;
+                idByBarcode.put(entry.getKey(), id);
+                indexName(id, normalized);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds products whose name matches the query and returns their barcodes, best match first.
+     *
+     * @param query Free text typed by the user; case and punctuation are ignored.
+     * @param limit The maximum number of results.
+     * @return Barcodes of matching products in rank order.
+     */
+    List<String> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) return new ArrayList<>();
+        String[] tokens = q.split(" ");
+
+        lock.readLock().lock();
+        try {
+            BitSet seen = new BitSet(nextId);
+            // Max-heap on rank order holding the best `limit` results seen so far.
+            PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, (a, b) -> compareRanked(b, a));
+
+            // 1. Exact name matches.
+            IntList exact = idsByName.get(q);
+            if (exact != null) {
+                for (int i = 0; i < exact.size; i++) {
+                    int id = exact.values[i];
+                    if (nameById[id] == null || seen.get(id)) continue;
+                    seen.set(id);
+                    offer(best, limit, RANK_EXACT, id);
+                }
+            }
+
+            // 2. Word-prefix matches, driven by the query token with the fewest trie entries.
+            TrieNode driver = null;
+            boolean allTokensPresent = true;
+            for (String token : tokens) {
+                TrieNode node = wordTrie.find(token);
+                if (node == null) { allTokensPresent = false; break; }
+                if (driver == null || node.subtreeCount < driver.subtreeCount) driver = node;
+            }
+            if (allTokensPresent && driver != null) {
+                int[] accepted = {0};
+                driver.visit(id -> {
+                    String name = nameById[id];
+                    if (name == null || seen.get(id) || !matchesWordPrefixes(name, tokens)) return true;
+                    seen.set(id);
+                    int rank = name.startsWith(q) ? RANK_NAME_PREFIX : RANK_WORD_PREFIX;
+                    offer(best, limit, rank, id);
+                    return ++accepted[0] < MAX_CANDIDATES;
+                }, new int[]{MAX_SCANNED});
+            }
+
+            // 3. Substring matches via trigram intersection (queries shorter than a trigram rely on prefixes alone).
+            //    Skipped when prefix matches already fill the result list, since substrings rank below them.
+            boolean prefixesFillResults = best.size() == limit && (best.peek()[0] >> 16) <= RANK_WORD_PREFIX;
+            if (q.length() >= 3 && !prefixesFillResults) {
+                IntList ids = substringCandidates(q);
+                for (int i = 0; i < ids.size; i++) {
+                    int id = ids.values[i];
+                    String name = nameById[id];
+                    if (name == null || seen.get(id) || !name.contains(q)) continue;
+                    seen.set(id);
+                    offer(best, limit, name.startsWith(q) ? RANK_NAME_PREFIX : RANK_SUBSTRING, id);
+                }
+            }
+
+            long[][] ranked = best.toArray(new long[0][]);
+            Arrays.sort(ranked, this::compareRanked);
+            List<String> results = new ArrayList<>(ranked.length);
+            for (long[] entry : ranked) results.add(barcodeById[(int) entry[1]]);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return idByBarcode.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Internals (callers hold the lock) ---
+
+    /**
+     * Ranked entries are {rank * 2^16 + name length, id}; ties fall back to alphabetical order.
+     */
+    private int compareRanked(long[] a, long[] b) {
+        if (a[0] != b[0]) return Long.compare(a[0], b[0]);
+        return nameById[(int) a[1]].compareTo(nameById[(int) b[1]]);
+    }
+
+    private void offer(PriorityQueue<long[]> best, int limit, int rank, int id) {
+        long[] entry = {((long) rank << 16) + Math.min(nameById[id].length(), 0xFFFF), id};
+        if (best.size() < limit) {
+            best.add(entry);
+        } else if (compareRanked(entry, best.peek()) < 0) {
+            best.poll();
+            best.add(entry);
+        }
+    }
+
+    private void removeInternal(String barcode) {
+        Integer id = idByBarcode.remove(barcode);
+        if (id == null) return;
+        barcodeById[id] = null;
+        nameById[id] = null;
+        tombstones++;
+    }
+
+    private void compact() {
+        Map<String, String> live = new HashMap<>();
+        for (int id = 0; id < nextId; id++) {
+            if (barcodeById[id] != null) live.put(barcodeById[id], nameById[id]);
+        }
+        rebuild(live);
+    }
+
+    private void indexName(int id, String normalized) {
+        idsByName.computeIfAbsent(normalized, k -> new IntList()).add(id);
+        Set<String> words = new HashSet<>(Arrays.asList(normalized.split(" ")));
+        for (String word : words) {
+            if (!word.isEmpty()) wordTrie.insert(word, id);
+        }
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= normalized.length(); i++) trigrams.add(trigram(normalized, i));
+        for (Long key : trigrams) trigramPostings.computeIfAbsent(key, k -> new IntList()).add(id);
+    }
+
+    /**
+     * Intersects the posting lists of every trigram in the query, smallest list first.
+     */
+    private IntList substringCandidates(String q) {
+        List<IntList> lists = new ArrayList<>();
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= q.length(); i++) trigrams.add(trigram(q, i));
+        for (Long key : trigrams) {
+            IntList postings = trigramPostings.get(key);
+            if (postings == null) return new IntList();
+            lists.add(postings);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        IntList result = new IntList();
+        IntList smallest = lists.get(0);
+        int scanLimit = Math.min(smallest.size, MAX_SCANNED);
+        for (int i = 0; i < scanLimit && result.size < MAX_CANDIDATES; i++) {
+            int id = smallest.values[i];
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) inAll = lists.get(j).contains(id);
+            if (inAll) result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * @return Whether every token is a prefix of some word in the (normalized) name.
+     */
+    private static boolean matchesWordPrefixes(String name, String[] tokens) {
+        for (String token : tokens) {
+            boolean found = false;
+            for (int start = 0; start < name.length() && !found; ) {
+                found = name.startsWith(token, start);
+                int space = name.indexOf(' ', start);
+                start = space < 0 ? name.length() : space + 1;
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static long trigram(String s, int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+
+    /**
+     * Lower-cases the text, turns punctuation into spaces and collapses runs of whitespace.
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                pendingSpace = false;
+                sb.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A trie node with children kept in parallel sorted arrays, which is far lighter than a map per node.
+     */
+    private static final class TrieNode {
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        /** Ids of products with a word ending exactly at this node. */
+        private IntList ids;
+        /** Number of postings in this subtree, including tombstoned ids; used to pick the cheapest query token. */
+        private int subtreeCount;
+
+        void insert(String word, int id) {
+            TrieNode node = this;
+            node.subtreeCount++;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.childFor(word.charAt(i), true);
+                node.subtreeCount++;
+            }
+            if (node.ids == null) node.ids = new IntList();
+            node.ids.add(id);
+        }
+
+        TrieNode find(String prefix) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) node = node.childFor(prefix.charAt(i), false);
+            return node;
+        }
+
+        /**
+         * Visits every id in this subtree in word order until the visitor returns false
+         * or the scan budget (a single-element counter) runs out.
+         * @return False if the walk was stopped early.
+         */
+        boolean visit(IntPredicate visitor, int[] budget) {
+            if (ids != null) {
+                for (int i = 0; i < ids.size; i++) {
+                    if (--budget[0] < 0 || !visitor.test(ids.values[i])) return false;
+                }
+            }
+            for (TrieNode child : children) {
+                if (!child.visit(visitor, budget)) return false;
+            }
+            return true;
+        }
+
+        private TrieNode childFor(char c, boolean create) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) return children[index];
+            if (!create) return null;
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = new TrieNode();
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+    }
+
+    /**
+     * A growable list of ints. Ids are handed out in increasing order, so lists stay sorted
+     * and membership can be checked with a binary search.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+}
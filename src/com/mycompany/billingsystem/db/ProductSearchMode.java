@@ -0,0 +1,11 @@
+package com.mycompany.billingsystem.db;
+
+/**
+ * How {@link DatabaseManager#findProductsByName(String, ProductSearchMode, int)} searches product names.
+ */
+public enum ProductSearchMode {
+    /** Substring match with LIKE '%name%'. Always available, but scans the whole products table. */
+    LIKE,
+    /** Token and prefix match against the products_fts FTS5 index, ranked by relevance. */
+    FULL_TEXT
+}
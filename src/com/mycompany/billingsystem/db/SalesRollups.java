@@ -0,0 +1,55 @@
+package com.mycompany.billingsystem.db;
+
+import com.mycompany.billingsystem.util.DateTimes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Pre-aggregated sales per calendar day, so dashboard figures are read from one row per day
+ * instead of re-summing every bill.
+ *
+ * sales_daily holds each day's total and bill count; product_sales_daily holds the quantity of
+ * each product sold per day. Days are local-time 'yyyy-MM-dd' strings. {@link DatabaseManager}
+ * adds to both tables in the same transaction that saves a bill, and {@link #rebuild} recomputes
+ * them from bills and bill_items for existing databases or after manual data fixes.
+ */
+final class SalesRollups {
+
+    static final String CREATE_SALES_DAILY = "CREATE TABLE IF NOT EXISTS sales_daily (day TEXT PRIMARY KEY, total_paise INTEGER NOT NULL, bill_count INTEGER NOT NULL) WITHOUT ROWID";
+    static final String CREATE_PRODUCT_SALES_DAILY = "CREATE TABLE IF NOT EXISTS product_sales_daily (day TEXT NOT NULL, product_barcode TEXT NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY(day, product_barcode)) WITHOUT ROWID";
+
+    static final String ADD_BILL_SQL = "INSERT INTO sales_daily(day, total_paise, bill_count) VALUES(?, ?, 1) "
+            + "ON CONFLICT(day) DO UPDATE SET total_paise = total_paise + excluded.total_paise, bill_count = bill_count + 1";
+    static final String ADD_ITEM_SQL = "INSERT INTO product_sales_daily(day, product_barcode, quantity) VALUES(?, ?, ?) "
+            + "ON CONFLICT(day, product_barcode) DO UPDATE SET quantity = quantity + excluded.quantity";
+
+    /** bill_date is epoch millis; SQLite's 'localtime' uses the same system zone as {@link DateTimes#ZONE}. */
+    private static final String BILL_DAY = "date(b.bill_date / 1000, 'unixepoch', 'localtime')";
+
+    private SalesRollups() {}
+
+    /**
+     * @return The rollup key for the day a bill was created on.
+     */
+    static String dayOf(long billTimeMillis) {
+        return DateTimes.toLocalDate(billTimeMillis).toString();
+    }
+
+    /**
+     * Recomputes both rollup tables from scratch. Runs inside the caller's transaction.
+     */
+    static void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_SALES_DAILY);
+            stmt.execute(CREATE_PRODUCT_SALES_DAILY);
+            stmt.execute("DELETE FROM sales_daily");
+            stmt.execute("DELETE FROM product_sales_daily");
+            stmt.execute("INSERT INTO sales_daily(day, total_paise, bill_count) "
+                    + "SELECT " + BILL_DAY + ", SUM(b.total_paise), COUNT(*) FROM bills b GROUP BY 1");
+            stmt.execute("INSERT INTO product_sales_daily(day, product_barcode, quantity) "
+                    + "SELECT " + BILL_DAY + ", bi.product_barcode, SUM(bi.quantity) FROM bill_items bi JOIN bills b ON b.bill_id = bi.bill_id GROUP BY 1, 2");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.mycompany.billingsystem.db;
+
+import com.mycompany.billingsystem.model.Product;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned, in-place schema upgrades for inventory.db.
+ * The current version is tracked in a schema_version table; on startup every migration newer
+ * than that version is applied in order, each in its own transaction. Existing databases are
+ * upgraded where they stand, so users never have to delete their data to pick up a schema change.
+ *
+ * To change the schema, append a new migration to {@link #MIGRATIONS} with the next version
+ * number. Never edit or reorder a migration that has already shipped.
+ */
+final class SchemaMigrations {
+
+    /**
+     * One step of schema work executed inside the migration's transaction.
+     */
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    /**
+     * A numbered schema change.
+     */
+    static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        // Version 1 is the schema the application has always created; on older databases it is a no-op.
+        MIGRATIONS.add(new Migration(1, "Baseline schema", sql(
+                "CREATE TABLE IF NOT EXISTS products (barcode TEXT PRIMARY KEY, name TEXT NOT NULL UNIQUE, price REAL NOT NULL, stock_quantity INTEGER NOT NULL, tax_slab REAL NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS users (username TEXT PRIMARY KEY, password_hash TEXT NOT NULL, role TEXT NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS bills (bill_id INTEGER PRIMARY KEY AUTOINCREMENT, bill_date TEXT NOT NULL, total_amount REAL NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS bill_items (item_id INTEGER PRIMARY KEY AUTOINCREMENT, bill_id INTEGER NOT NULL, product_barcode TEXT NOT NULL, quantity INTEGER NOT NULL, price_per_item REAL NOT NULL, FOREIGN KEY(bill_id) REFERENCES bills(bill_id), FOREIGN KEY(product_barcode) REFERENCES products(barcode))")));
+
+        // Covering indexes: date-range history and dashboard totals read only the index,
+        // bill details and the top-sellers join look up items by bill, and product lookups
+        // on bill_items no longer scan the table.
+        MIGRATIONS.add(new Migration(2, "Indexes for sales history, bill details and top sellers", sql(
+                "CREATE INDEX IF NOT EXISTS idx_bills_date ON bills(bill_date, total_amount)",
+                "CREATE INDEX IF NOT EXISTS idx_bill_items_bill ON bill_items(bill_id, product_barcode, quantity, price_per_item)",
+                "CREATE INDEX IF NOT EXISTS idx_bill_items_product ON bill_items(product_barcode, bill_id, quantity)")));
+
+        // Optional FTS5 index over product names, kept in sync with products by triggers.
+        MIGRATIONS.add(new Migration(3, "Full-text search index for product names", SchemaMigrations::createProductSearchIndex));
+
+        // Money moves from REAL rupees to INTEGER paise so totals add up exactly. The covering
+        // indexes include the old columns, so they are dropped first and rebuilt on the new ones.
+        MIGRATIONS.add(new Migration(4, "Store prices and totals as integer paise", sql(
+                "DROP INDEX IF EXISTS idx_bills_date",
+                "DROP INDEX IF EXISTS idx_bill_items_bill",
+                "ALTER TABLE products ADD COLUMN price_paise INTEGER NOT NULL DEFAULT 0",
+                "UPDATE products SET price_paise = CAST(ROUND(price * 100) AS INTEGER)",
+                "ALTER TABLE products DROP COLUMN price",
+                "ALTER TABLE bills ADD COLUMN total_paise INTEGER NOT NULL DEFAULT 0",
+                "UPDATE bills SET total_paise = CAST(ROUND(total_amount * 100) AS INTEGER)",
+                "ALTER TABLE bills DROP COLUMN total_amount",
+                "ALTER TABLE bill_items ADD COLUMN price_paise INTEGER NOT NULL DEFAULT 0",
+                "UPDATE bill_items SET price_paise = CAST(ROUND(price_per_item * 100) AS INTEGER)",
+                "ALTER TABLE bill_items DROP COLUMN price_per_item",
+                "CREATE INDEX idx_bills_date ON bills(bill_date, total_paise)",
+                "CREATE INDEX idx_bill_items_bill ON bill_items(bill_id, product_barcode, quantity, price_paise)")));
+
+        // bill_date becomes epoch milliseconds so date filters are integer range scans on the index.
+        // Old values are 'yyyy-MM-dd HH:mm:ss' in local time, which strftime converts via 'utc'.
+        MIGRATIONS.add(new Migration(5, "Store bill dates as epoch milliseconds", sql(
+                "DROP INDEX IF EXISTS idx_bills_date",
+                "ALTER TABLE bills ADD COLUMN bill_time INTEGER NOT NULL DEFAULT 0",
+                "UPDATE bills SET bill_time = CAST(strftime('%s', bill_date, 'utc') AS INTEGER) * 1000",
+                "ALTER TABLE bills DROP COLUMN bill_date",
+                "ALTER TABLE bills RENAME COLUMN bill_time TO bill_date",
+                "CREATE INDEX idx_bills_date ON bills(bill_date, total_paise)")));
+
+        // Token of the journaled submission a bill came from, so replaying the journal after a crash is idempotent.
+        MIGRATIONS.add(new Migration(6, "Commit tokens for write-behind bill saves", sql(
+                "ALTER TABLE bills ADD COLUMN commit_token TEXT",
+                "CREATE UNIQUE INDEX idx_bills_commit_token ON bills(commit_token) WHERE commit_token IS NOT NULL")));
+
+        // Daily sales rollups for the dashboard, backfilled from the existing bills.
+        MIGRATIONS.add(new Migration(7, "Daily sales rollup tables", SalesRollups::rebuild));
+
+        // Per-product reorder levels. The expression index orders products by how far their stock
+        // is above the level, so the low-stock query reads only the products at or below it.
+        MIGRATIONS.add(new Migration(8, "Per-product reorder levels", sql(
+                "ALTER TABLE products ADD COLUMN reorder_level INTEGER NOT NULL DEFAULT " + Product.DEFAULT_REORDER_LEVEL,
+                "CREATE INDEX idx_products_stock_margin ON products(stock_quantity - reorder_level)")));
+
+        // Sales history is paged by keyset on (bill_date, bill_id), newest first; with bill_id in the
+        // index key a page is one seek plus a short index walk, and counts never touch the table.
+        MIGRATIONS.add(new Migration(9, "Keyset index for paged sales history", sql(
+                "DROP INDEX IF EXISTS idx_bills_date",
+                "CREATE INDEX idx_bills_date ON bills(bill_date, bill_id, total_paise)")));
+    }
+
+    private SchemaMigrations() {}
+
+    /**
+     * Brings the database up to the latest schema version.
+     *
+     * @param conn The writer connection, in auto-commit mode.
+     * @return The number of migrations applied.
+     * @throws SQLException If a migration fails; that migration is rolled back and later ones are not attempted.
+     */
+    static int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (version INTEGER PRIMARY KEY, description TEXT NOT NULL, applied_at TEXT NOT NULL)");
+        }
+        int current = currentVersion(conn);
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) continue;
+            conn.setAutoCommit(false);
+            try {
+                migration.step.apply(conn);
+                try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO schema_version(version, description, applied_at) VALUES(?, ?, ?)")) {
+                    pstmt.setInt(1, migration.version);
+                    pstmt.setString(2, migration.description);
+                    pstmt.setString(3, LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                applied++;
+                System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Schema migration " + migration.version + " (" + migration.description + ") failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        if (applied > 0) {
+            // Refresh the query planner's statistics so the new indexes are picked up straight away.
+            try (Statement stmt = conn.createStatement()) { stmt.execute("PRAGMA optimize"); }
+        }
+        return applied;
+    }
+
+    /**
+     * @return The highest applied migration version, or 0 for a database that has never been migrated.
+     */
+    static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * @return The version the application expects once every migration has run.
+     */
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Creates products_fts as an external-content FTS5 table over products.name. The SQLite build
+     * may lack FTS5, in which case the step is skipped and full-text search falls back to LIKE.
+     */
+    private static void createProductSearchIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT sqlite_compileoption_used('ENABLE_FTS5')")) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    System.err.println("SQLite was built without FTS5; full-text product search is unavailable.");
+                    return;
+                }
+            }
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS products_fts USING fts5(name, content='products', content_rowid='rowid', tokenize='unicode61 remove_diacritics 2', prefix='2 3')");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS products_fts_insert AFTER INSERT ON products BEGIN "
+                    + "INSERT INTO products_fts(rowid, name) VALUES (new.rowid, new.name); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS products_fts_delete AFTER DELETE ON products BEGIN "
+                    + "INSERT INTO products_fts(products_fts, rowid, name) VALUES ('delete', old.rowid, old.name); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS products_fts_update AFTER UPDATE OF name ON products BEGIN "
+                    + "INSERT INTO products_fts(products_fts, rowid, name) VALUES ('delete', old.rowid, old.name); "
+                    + "INSERT INTO products_fts(rowid, name) VALUES (new.rowid, new.name); END");
+            stmt.execute("INSERT INTO products_fts(products_fts) VALUES ('rebuild')");
+        }
+    }
+
+    private static Step sql(String... statements) {
+        return conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String statement : statements) stmt.execute(statement);
+            }
+        };
+    }
+}
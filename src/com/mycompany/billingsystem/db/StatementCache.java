@@ -0,0 +1,85 @@
+package com.mycompany.billingsystem.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, least-recently-used cache of prepared statements for a single connection.
+ * Preparing a statement makes SQLite parse and plan the SQL; reusing the compiled statement
+ * lets hot lookups such as barcode scans skip that step entirely.
+ *
+ * Not thread-safe: a cache belongs to exactly one pooled connection, which is only ever
+ * used by one thread at a time.
+ */
+class StatementCache {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private final AtomicLong hits, misses, evictions;
+
+    /**
+     * @param connection The connection that owns the cached statements.
+     * @param maxSize The maximum number of statements to keep open.
+     * @param hits Shared counter incremented on every cache hit.
+     * @param misses Shared counter incremented on every cache miss.
+     * @param evictions Shared counter incremented whenever a statement is evicted.
+     */
+    StatementCache(Connection connection, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.connection = connection;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxSize) return false;
+                closeQuietly(eldest.getValue());
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for the SQL, preparing it on a miss.
+     * The caller must not close the returned statement, but must close any ResultSet it produces.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Returns a cached statement for the SQL and generated-keys flag, preparing it on a miss.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        PreparedStatement pstmt = statements.get(key);
+        if (pstmt != null && !pstmt.isClosed()) {
+            hits.incrementAndGet();
+            // A batch left behind by a failed transaction must not leak into the next use.
+            pstmt.clearBatch();
+            return pstmt;
+        }
+        misses.incrementAndGet();
+        pstmt = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, pstmt);
+        return pstmt;
+    }
+
+    /**
+     * Closes and forgets every cached statement.
+     */
+    void clear() {
+        for (PreparedStatement pstmt : statements.values()) closeQuietly(pstmt);
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt) {
+        try { pstmt.close(); } catch (SQLException e) { System.err.println("Error closing cached statement: " + e.getMessage()); }
+    }
+}
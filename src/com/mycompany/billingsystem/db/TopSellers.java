@@ -0,0 +1,174 @@
+package com.mycompany.billingsystem.db;
+
+import com.mycompany.billingsystem.model.Product;
+import com.mycompany.billingsystem.util.DateTimes;
+import com.mycompany.billingsystem.util.SpaceSavingSketch;
+import com.mycompany.billingsystem.util.TaskScheduler;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming best-seller rankings for today, this week and this month.
+ *
+ * Each window is a {@link SpaceSavingSketch} seeded from the per-product daily rollup at startup
+ * and then fed by {@link DatabaseManager} with every committed bill, so answering "top N" copies a
+ * short, already-sorted list instead of aggregating bill items. Counts are exact while a window has
+ * seen fewer distinct products than the sketch has counters, and otherwise overestimate by at most
+ * -Dbilling.topSellers.errorRate (default 0.001) of the units sold in that window.
+ *
+ * A window starts over when its day, week or month rolls over. Until the initial load finishes,
+ * and whenever exact figures are wanted, {@link #topExact} runs the SQL aggregate instead.
+ */
+public final class TopSellers {
+
+    public enum Window { TODAY, THIS_WEEK, THIS_MONTH }
+
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("billing.topSellers.errorRate", "0.001"));
+    /** The largest N that {@link #top} can answer from the sketch. */
+    public static final int MAX_TOP = Integer.getInteger("billing.topSellers.maxTop", 20);
+
+    private static final Window[] WINDOWS = Window.values();
+    private static final SpaceSavingSketch[] sketches = new SpaceSavingSketch[WINDOWS.length];
+    private static final LocalDate[] windowStarts = new LocalDate[WINDOWS.length];
+    private static boolean loaded = false;
+    private static boolean loading = false;
+    /** Bills committed while the rollup was being read, as {id, time, barcodes, quantities}. */
+    private static final List<Object[]> pendingBills = new ArrayList<>();
+    /** Newest bill already counted; bills up to this id are ignored when they are reported again. */
+    private static long lastBillId = Long.MAX_VALUE;
+
+    static {
+        for (int i = 0; i < WINDOWS.length; i++) sketches[i] = SpaceSavingSketch.withErrorRate(ERROR_RATE, MAX_TOP);
+    }
+
+    private TopSellers() {}
+
+    /**
+     * Seeds every window from the sales rollup. Safe to call again to discard the sketches and reload.
+     */
+    public static void load() {
+        long start = System.nanoTime();
+        synchronized (TopSellers.class) {
+            loading = true;
+            pendingBills.clear();
+        }
+        LocalDate today = LocalDate.now(DateTimes.ZONE);
+        LocalDate earliest = windowStart(Window.THIS_WEEK, today).isBefore(windowStart(Window.THIS_MONTH, today)) ? windowStart(Window.THIS_WEEK, today) : windowStart(Window.THIS_MONTH, today);
+        DatabaseManager.DailyProductSales sales = DatabaseManager.getDailyProductSalesSince(earliest);
+        synchronized (TopSellers.class) {
+            loading = false;
+            if (sales == null) return;
+            for (int i = 0; i < WINDOWS.length; i++) {
+                sketches[i].clear();
+                windowStarts[i] = windowStart(WINDOWS[i], today);
+            }
+            for (Object[] row : sales.rows) {
+                LocalDate day = LocalDate.parse((String) row[0]);
+                for (int i = 0; i < WINDOWS.length; i++) {
+                    if (!day.isBefore(windowStarts[i])) sketches[i].add((String) row[1], (long) row[2]);
+                }
+            }
+            lastBillId = sales.lastBillId;
+            loaded = true;
+            // Bills that committed while the rollup was being read; those the snapshot already includes are skipped.
+            for (Object[] bill : pendingBills) billCommitted((long) bill[0], (long) bill[1], (String[]) bill[2], (int[]) bill[3]);
+            pendingBills.clear();
+        }
+        System.out.printf("Top sellers loaded from %d rollup rows in %.1f ms%n", sales.rows.size(), (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Loads the sketches on the scheduler's background lane so startup is not delayed.
+     */
+    public static void loadAsync() {
+        TaskScheduler.run(TaskScheduler.Lane.BACKGROUND, TopSellers::load);
+    }
+
+    /**
+     * The best sellers in a window, answered from the sketch without touching the database once loaded.
+     *
+     * @param window The period to rank.
+     * @param n How many products to return; larger than {@link #MAX_TOP} falls back to {@link #topExact}.
+     * @return Rows of {product name, units sold}, best seller first.
+     */
+    public static List<Object[]> top(Window window, int n) {
+        List<SpaceSavingSketch.Entry> entries;
+        synchronized (TopSellers.class) {
+            if (!loaded || n > MAX_TOP) entries = null;
+            else {
+                rollOver(LocalDate.now(DateTimes.ZONE));
+                // A few extra in case some of the products have since been deleted.
+                entries = sketches[window.ordinal()].top(MAX_TOP);
+            }
+        }
+        if (entries == null) return topExact(window, n);
+        List<Object[]> rows = new ArrayList<>(n);
+        for (SpaceSavingSketch.Entry entry : entries) {
+            if (rows.size() == n) break;
+            Product product = ProductCatalog.findByBarcode(entry.getKey());
+            if (product != null) rows.add(new Object[]{product.getName(), entry.getCount()});
+        }
+        return rows;
+    }
+
+    /**
+     * The best sellers in a window computed exactly with SQL over the daily rollup.
+     * @return Rows of {product name, units sold}, best seller first.
+     */
+    public static List<Object[]> topExact(Window window, int n) {
+        return DatabaseManager.getTopSellingProductsSince(windowStart(window, LocalDate.now(DateTimes.ZONE)), n);
+    }
+
+    /**
+     * @return The most any count reported by {@link #top} for the window may exceed the true count by.
+     */
+    public static synchronized long getMaxError(Window window) {
+        return sketches[window.ordinal()].getMaxError();
+    }
+
+    public static synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Called by {@link DatabaseManager} after a bill commits.
+     */
+    static synchronized void billCommitted(long billId, long billTimeMillis, String[] barcodes, int[] quantities) {
+        if (loading) {
+            pendingBills.add(new Object[]{billId, billTimeMillis, barcodes, quantities});
+            return;
+        }
+        if (!loaded || billId <= lastBillId) return;
+        lastBillId = billId;
+        LocalDate day = DateTimes.toLocalDate(billTimeMillis);
+        rollOver(day);
+        for (int w = 0; w < WINDOWS.length; w++) {
+            if (day.isBefore(windowStarts[w])) continue;
+            for (int i = 0; i < barcodes.length; i++) sketches[w].add(barcodes[i], quantities[i]);
+        }
+    }
+
+    /**
+     * Starts a window over once the given day falls after it.
+     */
+    private static void rollOver(LocalDate today) {
+        for (int i = 0; i < WINDOWS.length; i++) {
+            LocalDate start = windowStart(WINDOWS[i], today);
+            if (start.isAfter(windowStarts[i])) {
+                sketches[i].clear();
+                windowStarts[i] = start;
+            }
+        }
+    }
+
+    private static LocalDate windowStart(Window window, LocalDate today) {
+        switch (window) {
+            case TODAY: return today;
+            case THIS_WEEK: return today.with(DayOfWeek.MONDAY);
+            default: return today.withDayOfMonth(1);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.mycompany.billingsystem.event;
+
+/**
+ * Published once a bill and its stock changes have been committed to the database.
+ * Bill ids increase in commit order.
+ */
+public final class BillCommittedEvent {
+
+    private final long billId;
+    private final long billTimeMillis;
+    private final long totalPaise;
+    private final String[] barcodes;
+    private final int[] quantities;
+
+    /**
+     * @param barcodes The barcodes of the products sold; not copied, so the caller must not modify the array afterwards.
+     * @param quantities The quantity sold of each product, parallel to barcodes; likewise not copied.
+     */
+    public BillCommittedEvent(long billId, long billTimeMillis, long totalPaise, String[] barcodes, int[] quantities) {
+        this.billId = billId;
+        this.billTimeMillis = billTimeMillis;
+        this.totalPaise = totalPaise;
+        this.barcodes = barcodes;
+        this.quantities = quantities;
+    }
+
+    public long getBillId() { return billId; }
+    public long getBillTimeMillis() { return billTimeMillis; }
+    public long getTotalPaise() { return totalPaise; }
+    public int getItemCount() { return barcodes.length; }
+    public String getBarcode(int index) { return barcodes[index]; }
+    public int getQuantity(int index) { return quantities[index]; }
+}
@@ -0,0 +1,53 @@
+package com.mycompany.billingsystem.event;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A minimal in-process publish/subscribe hub.
+ *
+ * Handlers are registered for an exact event class and are called synchronously on the
+ * publishing thread, which is usually a background database thread. Handlers that touch Swing
+ * components must hand off to the event dispatch thread themselves. A handler that throws is
+ * logged and does not stop the other handlers or the publisher.
+ */
+public final class EventBus {
+
+    private static final Map<Class<?>, List<Consumer<Object>>> subscribers = new ConcurrentHashMap<>();
+
+    private EventBus() {}
+
+    /**
+     * Registers a handler for events of the given class.
+     *
+     * @param type The event class to listen for; subclasses are not delivered.
+     * @param handler Called with every published event of that class.
+     * @return An action that unsubscribes the handler.
+     */
+    public static <T> Runnable subscribe(Class<T> type, Consumer<? super T> handler) {
+        Consumer<Object> wrapper = event -> handler.accept(type.cast(event));
+        List<Consumer<Object>> handlers = subscribers.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>());
+        handlers.add(wrapper);
+        return () -> handlers.remove(wrapper);
+    }
+
+    /**
+     * Delivers an event to every handler subscribed to its class.
+     * @param event The event; must not be null.
+     */
+    public static void publish(Object event) {
+        List<Consumer<Object>> handlers = subscribers.get(event.getClass());
+        if (handlers == null) return;
+        for (Consumer<Object> handler : handlers) {
+            try {
+                handler.accept(event);
+            } catch (RuntimeException e) {
+                System.err.println("Error handling " + event.getClass().getSimpleName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
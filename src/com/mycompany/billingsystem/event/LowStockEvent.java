@@ -0,0 +1,36 @@
+package com.mycompany.billingsystem.event;
+
+/**
+ * Published when the set of products at or below their reorder level changes: a product crosses
+ * its level in either direction, or a product that is already low has its stock changed.
+ * {@link #isAlert()} marks the moment a product first needs reordering.
+ */
+public final class LowStockEvent {
+
+    private final String barcode;
+    private final String name;
+    private final int stockQuantity;
+    private final int reorderLevel;
+    private final boolean wasLow;
+    private final boolean low;
+
+    public LowStockEvent(String barcode, String name, int stockQuantity, int reorderLevel, boolean wasLow, boolean low) {
+        this.barcode = barcode;
+        this.name = name;
+        this.stockQuantity = stockQuantity;
+        this.reorderLevel = reorderLevel;
+        this.wasLow = wasLow;
+        this.low = low;
+    }
+
+    public String getBarcode() { return barcode; }
+    public String getName() { return name; }
+    public int getStockQuantity() { return stockQuantity; }
+    public int getReorderLevel() { return reorderLevel; }
+    /** @return Whether the product was at or below its reorder level before this change. */
+    public boolean wasLow() { return wasLow; }
+    /** @return Whether the product is at or below its reorder level now; false once it is deleted. */
+    public boolean isLow() { return low; }
+    /** @return Whether the product has just dropped to its reorder level. */
+    public boolean isAlert() { return low && !wasLow; }
+}
@@ -0,0 +1,16 @@
+package com.mycompany.billingsystem.event;
+
+/**
+ * Published after a product is added, deleted or has its stock or reorder level adjusted outside of a bill.
+ * Subscribers read the current state from the product catalog.
+ */
+public final class ProductChangedEvent {
+
+    private final String barcode;
+
+    public ProductChangedEvent(String barcode) {
+        this.barcode = barcode;
+    }
+
+    public String getBarcode() { return barcode; }
+}
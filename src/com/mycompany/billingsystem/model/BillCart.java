@@ -0,0 +1,142 @@
+package com.mycompany.billingsystem.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The lines of the bill being rung up, in the order they were first scanned, with running totals.
+ *
+ * Lines live in a list and are indexed by barcode, so scanning an item finds its line, bumps the
+ * quantity and adjusts the subtotal and included tax by that one line's difference, without
+ * revisiting the other lines. The discount is kept as entered (a fixed amount or a percentage) and
+ * applied to the running subtotal when read. Only removing a whole line shifts the lines after it.
+ *
+ * Not thread-safe; the billing panel uses it on the event dispatch thread.
+ */
+public final class BillCart {
+
+    private static final class Line {
+        final Product product;
+        int quantity;
+        long taxPaise;
+
+        Line(Product product) {
+            this.product = product;
+        }
+
+        long totalPaise() {
+            return product.getPricePaise() * quantity;
+        }
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<String, Integer> rowByBarcode = new HashMap<>();
+    private long subtotalPaise = 0;
+    private long taxPaise = 0;
+    private long fixedDiscountPaise = 0;
+    private double discountPercent = 0;
+
+    /**
+     * Adds one unit of a product, appending a line if it is not on the bill yet.
+     * @return The row of the product's line.
+     */
+    public int add(Product product) {
+        Integer row = rowByBarcode.get(product.getBarcode());
+        if (row == null) {
+            row = lines.size();
+            lines.add(new Line(product));
+            rowByBarcode.put(product.getBarcode(), row);
+        }
+        setQuantity(lines.get(row), lines.get(row).quantity + 1);
+        return row;
+    }
+
+    /**
+     * Removes one unit from a line, and the line itself when its last unit goes.
+     * @return Whether the line was removed; later lines then move up one row.
+     */
+    public boolean removeOne(int row) {
+        Line line = lines.get(row);
+        setQuantity(line, line.quantity - 1);
+        if (line.quantity > 0) return false;
+        lines.remove(row);
+        rowByBarcode.remove(line.product.getBarcode());
+        for (int i = row; i < lines.size(); i++) rowByBarcode.put(lines.get(i).product.getBarcode(), i);
+        return true;
+    }
+
+    public void clear() {
+        lines.clear();
+        rowByBarcode.clear();
+        subtotalPaise = 0;
+        taxPaise = 0;
+        fixedDiscountPaise = 0;
+        discountPercent = 0;
+    }
+
+    private void setQuantity(Line line, int quantity) {
+        subtotalPaise -= line.totalPaise();
+        taxPaise -= line.taxPaise;
+        line.quantity = quantity;
+        line.taxPaise = Money.includedTax(line.totalPaise(), line.product.getTaxSlab());
+        subtotalPaise += line.totalPaise();
+        taxPaise += line.taxPaise;
+    }
+
+    // --- Discount ---
+
+    /** Discounts a fixed amount, replacing any percentage discount. */
+    public void setFixedDiscount(long paise) {
+        fixedDiscountPaise = Math.max(0, paise);
+        discountPercent = 0;
+    }
+
+    /** Discounts a percentage of the subtotal, replacing any fixed discount. */
+    public void setDiscountPercent(double percent) {
+        discountPercent = Math.max(0, percent);
+        fixedDiscountPaise = 0;
+    }
+
+    // --- Lines and totals ---
+
+    public boolean isEmpty() { return lines.isEmpty(); }
+    public int getLineCount() { return lines.size(); }
+    public Product getProduct(int row) { return lines.get(row).product; }
+    public int getQuantity(int row) { return lines.get(row).quantity; }
+    public long getLineTotalPaise(int row) { return lines.get(row).totalPaise(); }
+
+    /**
+     * @return How many units of the product are on the bill, 0 if none.
+     */
+    public int getQuantity(Product product) {
+        Integer row = rowByBarcode.get(product.getBarcode());
+        return row == null ? 0 : lines.get(row).quantity;
+    }
+
+    /** @return The sum of price x quantity over all lines, in paise. */
+    public long getSubtotalPaise() { return subtotalPaise; }
+    /** @return The tax included in the subtotal, in paise. */
+    public long getTaxPaise() { return taxPaise; }
+
+    /** @return The discount in paise, never more than the subtotal. */
+    public long getDiscountPaise() {
+        long discount = discountPercent > 0 ? Money.percentOf(subtotalPaise, discountPercent) : fixedDiscountPaise;
+        return Math.min(discount, subtotalPaise);
+    }
+
+    public long getGrandTotalPaise() {
+        return subtotalPaise - getDiscountPaise();
+    }
+
+    /**
+     * @return A copy of the lines as product to quantity, in bill order.
+     */
+    public Map<Product, Integer> toItemMap() {
+        Map<Product, Integer> items = new LinkedHashMap<>(lines.size() * 2);
+        for (Line line : lines) items.put(line.product, line.quantity);
+        return items;
+    }
+}
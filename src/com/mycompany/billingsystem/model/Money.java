@@ -0,0 +1,88 @@
+package com.mycompany.billingsystem.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helpers for amounts of money held as a primitive {@code long} count of paise (1/100 of a rupee).
+ * Prices, bill totals and line amounts are all stored and added up in paise, so arithmetic is
+ * exact and needs no boxing or BigDecimal on the hot path. Conversion to and from text only
+ * happens at the edges: user input, table cells and receipts.
+ */
+public final class Money {
+
+    public static final long PAISE_PER_RUPEE = 100;
+
+    private Money() {}
+
+    /**
+     * Converts a rupee amount to paise, rounding to the nearest paisa.
+     * @param rupees The amount in rupees, e.g. 12.5.
+     * @return The amount in paise, e.g. 1250.
+     */
+    public static long ofRupees(double rupees) {
+        return Math.round(rupees * PAISE_PER_RUPEE);
+    }
+
+    /**
+     * Parses a rupee amount typed by a user, such as "12", "12.5" or "12.50".
+     * More than two decimal places are rounded half-up to the nearest paisa.
+     *
+     * @param text The amount in rupees.
+     * @return The amount in paise.
+     * @throws NumberFormatException If the text is not a number or is out of range.
+     */
+    public static long parse(String text) {
+        try {
+            return new BigDecimal(text.trim()).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /**
+     * @return The amount in rupees, for display or legacy callers only; never add these up.
+     */
+    public static double toRupees(long paise) {
+        return paise / (double) PAISE_PER_RUPEE;
+    }
+
+    /**
+     * Calculates a percentage of an amount, rounded to the nearest paisa.
+     * @param paise The base amount.
+     * @param percent The percentage, e.g. 12.5 for 12.5%.
+     * @return The percentage amount in paise.
+     */
+    public static long percentOf(long paise, double percent) {
+        return Math.round(paise * percent / 100.0);
+    }
+
+    /**
+     * @return The tax already included in a tax-inclusive amount (such as an MRP) at the given rate.
+     */
+    public static long includedTax(long grossPaise, double taxPercent) {
+        return Math.round(grossPaise * taxPercent / (100.0 + taxPercent));
+    }
+
+    /**
+     * Formats an amount as rupees with exactly two decimals, e.g. 123456 becomes "1234.56".
+     */
+    public static String format(long paise) {
+        return appendTo(new StringBuilder(16), paise).toString();
+    }
+
+    /**
+     * Appends an amount as rupees with exactly two decimals without creating intermediate strings.
+     * @return The same builder, for chaining.
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long paise) {
+        if (paise < 0) {
+            sb.append('-');
+            paise = -paise;
+        }
+        long fraction = paise % PAISE_PER_RUPEE;
+        sb.append(paise / PAISE_PER_RUPEE).append('.');
+        if (fraction < 10) sb.append('0');
+        return sb.append(fraction);
+    }
+}
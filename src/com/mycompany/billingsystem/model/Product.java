@@ -9,24 +9,53 @@ import java.util.Objects;
 public class Product {
     private String barcode;
     private String name;
-    private double price;
+    private long pricePaise;
     private int stockQuantity;
     private double taxSlab;
+    private int reorderLevel;
 
-    public Product(String barcode, String name, double price, int stockQuantity, double taxSlab) {
+    /** The reorder level given to products that do not specify one. */
+    public static final int DEFAULT_REORDER_LEVEL = 10;
+
+    public Product(String barcode, String name, long pricePaise, int stockQuantity, double taxSlab) {
+        this(barcode, name, pricePaise, stockQuantity, taxSlab, DEFAULT_REORDER_LEVEL);
+    }
+
+    public Product(String barcode, String name, long pricePaise, int stockQuantity, double taxSlab, int reorderLevel) {
         this.barcode = barcode;
         this.name = name;
-        this.price = price;
+        this.pricePaise = pricePaise;
         this.stockQuantity = stockQuantity;
         this.taxSlab = taxSlab;
+        this.reorderLevel = reorderLevel;
     }
 
     // --- Getters ---
     public String getBarcode() { return barcode; }
     public String getName() { return name; }
-    public double getPrice() { return price; }
+    /** @return The MRP in paise; see {@link Money}. */
+    public long getPricePaise() { return pricePaise; }
     public int getStockQuantity() { return stockQuantity; }
     public double getTaxSlab() { return taxSlab; }
+    /** @return The stock level at or below which the product should be reordered. */
+    public int getReorderLevel() { return reorderLevel; }
+
+    /**
+     * Products are treated as immutable snapshots; a stock change produces a new instance.
+     * @param newStockQuantity The updated stock level.
+     * @return A copy of this product with the given stock quantity.
+     */
+    public Product withStockQuantity(int newStockQuantity) {
+        return new Product(barcode, name, pricePaise, newStockQuantity, taxSlab, reorderLevel);
+    }
+
+    /**
+     * @param newReorderLevel The updated reorder level.
+     * @return A copy of this product with the given reorder level.
+     */
+    public Product withReorderLevel(int newReorderLevel) {
+        return new Product(barcode, name, pricePaise, stockQuantity, taxSlab, newReorderLevel);
+    }
 
     // --- Overridden equals and hashCode ---
     // These are crucial for using Product objects as keys in a HashMap.
@@ -0,0 +1,55 @@
+package com.mycompany.billingsystem.ui;
+
+import com.mycompany.billingsystem.model.BillCart;
+import com.mycompany.billingsystem.model.Money;
+import com.mycompany.billingsystem.model.Product;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * The billing panel's table, drawn straight from a {@link BillCart}. Each change to the cart
+ * fires an event for just the row it touched, so a scan repaints one line however long the bill is.
+ */
+final class BillTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Name", "MRP", "Tax Slab", "Quantity", "Total"};
+
+    private final BillCart cart;
+
+    BillTableModel(BillCart cart) {
+        this.cart = cart;
+    }
+
+    void add(Product product) {
+        int lines = cart.getLineCount();
+        int row = cart.add(product);
+        if (cart.getLineCount() > lines) fireTableRowsInserted(row, row);
+        else fireTableRowsUpdated(row, row);
+    }
+
+    void removeOne(int row) {
+        if (cart.removeOne(row)) fireTableRowsDeleted(row, row);
+        else fireTableRowsUpdated(row, row);
+    }
+
+    void clear() {
+        cart.clear();
+        fireTableDataChanged();
+    }
+
+    @Override public int getRowCount() { return cart.getLineCount(); }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product p = cart.getProduct(row);
+        switch (column) {
+            case 0: return p.getName();
+            case 1: return Money.format(p.getPricePaise());
+            case 2: return p.getTaxSlab();
+            case 3: return cart.getQuantity(row);
+            default: return Money.format(cart.getLineTotalPaise(row));
+        }
+    }
+}
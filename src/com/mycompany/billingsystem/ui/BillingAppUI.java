@@ -1,23 +1,40 @@
 package com.mycompany.billingsystem.ui;
 
 import com.mycompany.billingsystem.db.DatabaseManager;
+import com.mycompany.billingsystem.db.ProductCatalog;
+import com.mycompany.billingsystem.event.EventBus;
+import com.mycompany.billingsystem.event.LowStockEvent;
+import com.mycompany.billingsystem.model.BillCart;
+import com.mycompany.billingsystem.model.Money;
 import com.mycompany.billingsystem.model.Product;
 import com.mycompany.billingsystem.model.User;
-import com.mycompany.billingsystem.util.PdfGenerator;
+import com.mycompany.billingsystem.util.DateTimes;
+import com.mycompany.billingsystem.util.EscPosReceiptRenderer;
+import com.mycompany.billingsystem.util.ReceiptArchive;
+import com.mycompany.billingsystem.util.ReceiptService;
+import com.mycompany.billingsystem.util.SalesReportExporter;
+import com.mycompany.billingsystem.util.TaskScheduler;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.SQLException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 
@@ -29,31 +46,32 @@ public class BillingAppUI extends JFrame {
 
     // --- Component Declarations ---
     private JTextField itemInputField;
-    private DefaultTableModel billTableModel;
+    private final BillCart billCart = new BillCart();
+    private BillTableModel billTableModel;
     private JTable billTable;
     private JLabel totalAmountLabel;
-    private final Map<Product, Integer> billItems = new HashMap<>();
-    private final List<Product> productsInBillTable = new ArrayList<>();
     private JTextField discountField;
+    private ProductAutocomplete itemAutocomplete;
     private JComboBox<String> discountTypeComboBox;
 
     private JTable inventoryTable;
-    private DefaultTableModel inventoryTableModel;
-    private JTextField newBarcodeField, newNameField, newMrpField, newTaxSlabField, newStockField;
+    private ProductTableModel inventoryTableModel;
+    private JTextField newBarcodeField, newNameField, newMrpField, newTaxSlabField, newStockField, newReorderLevelField;
     
     private JTextField updateProductIdentifierField;
     private JTextField updateQuantityField;
+    private JTextField updateReorderLevelField;
     private JTextField deleteProductIdentifierField;
 
     private JTable salesHistoryTable;
-    private DefaultTableModel salesHistoryTableModel;
+    private SalesHistoryTableModel salesHistoryTableModel;
     private JComboBox<String> salesFilterComboBox;
     private JTextField fromDateField;
     private JTextField toDateField;
     private JPanel dateRangePanel;
 
     private JTable usersTable;
-    private DefaultTableModel usersTableModel;
+    private UserTableModel usersTableModel;
     private JTextField newStaffUsernameField;
     private JPasswordField newStaffPasswordField;
     private JComboBox<String> userSelectionComboBox;
@@ -62,6 +80,11 @@ public class BillingAppUI extends JFrame {
     private JLabel todaysSalesValueLabel, todaysBillsValueLabel;
     private DefaultTableModel lowStockTableModel;
     private DefaultTableModel topSellingTableModel;
+    private DashboardState dashboardState;
+    private JLabel lowStockAlertLabel;
+    /** The product the low-stock notice is about, so the notice can be cleared once it is restocked. */
+    private String lowStockAlertBarcode;
+    private final Runnable lowStockSubscription;
     
     private final String currentUserRole;
 
@@ -89,7 +112,7 @@ public class BillingAppUI extends JFrame {
         tabbedPane.addChangeListener(e -> {
             String selectedTitle = tabbedPane.getTitleAt(tabbedPane.getSelectedIndex());
             switch (selectedTitle) {
-                case "Dashboard": refreshDashboard(); break;
+                case "Dashboard": if (dashboardState != null) dashboardState.refreshIfDayChanged(); break;
                 case "Manage Products": refreshInventoryTable(); break;
                 case "Sales History": refreshSalesHistoryTable(); break;
                 case "Manage Users": refreshUsersTable(); break;
@@ -100,8 +123,16 @@ public class BillingAppUI extends JFrame {
         setVisible(true);
 
         if ("administrator".equals(currentUserRole)) {
-            refreshDashboard();
+            dashboardState = new DashboardState(new DashboardView());
+            dashboardState.start();
         }
+        lowStockSubscription = EventBus.subscribe(LowStockEvent.class, event -> SwingUtilities.invokeLater(() -> lowStockChanged(event)));
+    }
+
+    @Override
+    public void dispose() {
+        lowStockSubscription.run();
+        super.dispose();
     }
     
     // --- Panel Creation Methods ---
@@ -117,8 +148,7 @@ public class BillingAppUI extends JFrame {
         JButton clearBillButton = new JButton("Clear Bill");
         topPanel.add(clearBillButton);
         panel.add(topPanel, BorderLayout.NORTH);
-        String[] billColumns = {"Name", "MRP", "Tax Slab", "Quantity", "Total"};
-        billTableModel = new DefaultTableModel(billColumns, 0) { @Override public boolean isCellEditable(int row, int column) { return false; }};
+        billTableModel = new BillTableModel(billCart);
         billTable = new JTable(billTableModel);
         panel.add(new JScrollPane(billTable), BorderLayout.CENTER);
         JPanel bottomPanel = new JPanel(new BorderLayout());
@@ -132,20 +162,25 @@ public class BillingAppUI extends JFrame {
         controlsPanel.add(discountTypeComboBox);
         JButton finalizeButton = new JButton("Finalize Bill");
         controlsPanel.add(finalizeButton);
+        lowStockAlertLabel = new JLabel();
+        lowStockAlertLabel.setForeground(new Color(180, 0, 0));
+        lowStockAlertLabel.setHorizontalAlignment(SwingConstants.CENTER);
         bottomPanel.add(totalAmountLabel, BorderLayout.WEST);
+        bottomPanel.add(lowStockAlertLabel, BorderLayout.CENTER);
         bottomPanel.add(controlsPanel, BorderLayout.EAST);
         panel.add(bottomPanel, BorderLayout.SOUTH);
         itemInputField.addActionListener(e -> processItemInput());
+        itemAutocomplete = ProductAutocomplete.install(itemInputField, this::addItemToBill);
         removeItemButton.addActionListener(e -> removeSelectedItemFromBill());
         finalizeButton.addActionListener(e -> finalizeBill());
         clearBillButton.addActionListener(e -> clearBillingPage());
         DocumentListener discountListener = new DocumentListener() {
-            public void changedUpdate(DocumentEvent e) { updateTotalAmount(); }
-            public void removeUpdate(DocumentEvent e) { updateTotalAmount(); }
-            public void insertUpdate(DocumentEvent e) { updateTotalAmount(); }
+            public void changedUpdate(DocumentEvent e) { discountChanged(); }
+            public void removeUpdate(DocumentEvent e) { discountChanged(); }
+            public void insertUpdate(DocumentEvent e) { discountChanged(); }
         };
         discountField.getDocument().addDocumentListener(discountListener);
-        discountTypeComboBox.addActionListener(e -> updateTotalAmount());
+        discountTypeComboBox.addActionListener(e -> discountChanged());
         return panel;
     }
 
@@ -157,11 +192,11 @@ public class BillingAppUI extends JFrame {
         metricsPanel.add(createMetricCard("Today's Bills", "0", todaysBillsValueLabel = new JLabel()));
         panel.add(metricsPanel, BorderLayout.NORTH);
         JPanel listsPanel = new JPanel(new GridLayout(1, 2, 20, 0));
-        String[] lowStockColumns = {"Product Name", "Stock Left"};
+        String[] lowStockColumns = {"Product Name", "Stock Left", "Reorder Level"};
         lowStockTableModel = new DefaultTableModel(lowStockColumns, 0){ @Override public boolean isCellEditable(int r, int c){ return false; }};
         JTable lowStockTable = new JTable(lowStockTableModel);
         JPanel lowStockPanel = new JPanel(new BorderLayout());
-        lowStockPanel.setBorder(BorderFactory.createTitledBorder("Low Stock Alerts (<= 10 items)"));
+        lowStockPanel.setBorder(BorderFactory.createTitledBorder("Low Stock Alerts (at or below reorder level)"));
         lowStockPanel.add(new JScrollPane(lowStockTable), BorderLayout.CENTER);
         String[] topSellingColumns = {"Product Name", "Units Sold (Month)"};
         topSellingTableModel = new DefaultTableModel(topSellingColumns, 0){ @Override public boolean isCellEditable(int r, int c){ return false; }};
@@ -199,8 +234,7 @@ public class BillingAppUI extends JFrame {
         mainPanel.add(formsPanel, BorderLayout.NORTH);
         JPanel inventoryPanel = new JPanel(new BorderLayout());
         inventoryPanel.setBorder(BorderFactory.createTitledBorder("Full Stock Inventory"));
-        String[] inventoryColumns = {"Barcode", "Name", "MRP", "Stock", "Tax Slab (%)"};
-        inventoryTableModel = new DefaultTableModel(inventoryColumns, 0) { @Override public boolean isCellEditable(int r, int c){ return false; }};
+        inventoryTableModel = new ProductTableModel();
         inventoryTable = new JTable(inventoryTableModel);
         inventoryPanel.add(new JScrollPane(inventoryTable), BorderLayout.CENTER);
         JButton refreshInventoryButton = new JButton("Refresh Inventory");
@@ -226,6 +260,8 @@ public class BillingAppUI extends JFrame {
         gbc.gridx = 3; newTaxSlabField = new JTextField(10); panel.add(newTaxSlabField, gbc);
         gbc.gridy = 2; gbc.gridx = 0; panel.add(new JLabel("Initial Stock:"), gbc);
         gbc.gridx = 1; newStockField = new JTextField(10); panel.add(newStockField, gbc);
+        gbc.gridx = 2; panel.add(new JLabel("Reorder Level:"), gbc);
+        gbc.gridx = 3; newReorderLevelField = new JTextField(String.valueOf(Product.DEFAULT_REORDER_LEVEL), 10); panel.add(newReorderLevelField, gbc);
         gbc.gridy = 3; gbc.gridx = 0; gbc.gridwidth = 4; gbc.fill = GridBagConstraints.NONE;
         JButton addProductButton = new JButton("Add Product");
         panel.add(addProductButton, gbc);
@@ -245,6 +281,12 @@ public class BillingAppUI extends JFrame {
         JButton updateStockButton = new JButton("Update Stock");
         panel.add(updateStockButton);
         updateStockButton.addActionListener(e -> updateExistingStock());
+        panel.add(new JLabel("Reorder Level:"));
+        updateReorderLevelField = new JTextField(5);
+        panel.add(updateReorderLevelField);
+        JButton updateReorderLevelButton = new JButton("Set Reorder Level");
+        panel.add(updateReorderLevelButton);
+        updateReorderLevelButton.addActionListener(e -> updateExistingReorderLevel());
         return panel;
     }
     
@@ -274,7 +316,7 @@ public class BillingAppUI extends JFrame {
         topPanel.setLayout(new BoxLayout(topPanel, BoxLayout.Y_AXIS));
         JPanel standardFilterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         standardFilterPanel.add(new JLabel("Filter by:"));
-        String[] filters = {"Today", "This Week", "This Month", "Custom Range"};
+        String[] filters = {"Today", "This Week", "This Month", "All Time", "Custom Range"};
         salesFilterComboBox = new JComboBox<>(filters);
         standardFilterPanel.add(salesFilterComboBox);
         dateRangePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -290,16 +332,26 @@ public class BillingAppUI extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JButton refreshButton = new JButton("Refresh");
         buttonPanel.add(refreshButton);
+        JButton viewReceiptButton = new JButton("View Receipt");
+        buttonPanel.add(viewReceiptButton);
+        JButton rebuildReceiptsButton = new JButton("Rebuild Receipts");
+        rebuildReceiptsButton.setToolTipText("Render the receipts of every bill shown and store them in the archive");
+        buttonPanel.add(rebuildReceiptsButton);
+        JButton exportButton = new JButton("Export...");
+        exportButton.setToolTipText("Save the bills shown, with their items, as a CSV file or a PDF report");
+        buttonPanel.add(exportButton);
         topPanel.add(standardFilterPanel);
         topPanel.add(dateRangePanel);
         topPanel.add(buttonPanel);
         panel.add(topPanel, BorderLayout.NORTH);
-        String[] historyColumns = {"Bill ID", "Date", "Total Amount (₹)"};
-        salesHistoryTableModel = new DefaultTableModel(historyColumns, 0) { @Override public boolean isCellEditable(int r, int c){ return false; }};
+        salesHistoryTableModel = new SalesHistoryTableModel();
         salesHistoryTable = new JTable(salesHistoryTableModel);
         salesHistoryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         panel.add(new JScrollPane(salesHistoryTable), BorderLayout.CENTER);
         refreshButton.addActionListener(e -> refreshSalesHistoryTable());
+        viewReceiptButton.addActionListener(e -> viewSelectedReceipt());
+        rebuildReceiptsButton.addActionListener(e -> rebuildReceipts(rebuildReceiptsButton));
+        exportButton.addActionListener(e -> exportSalesHistory(exportButton));
         salesFilterComboBox.addActionListener(e -> {
             boolean isCustom = "Custom Range".equals(salesFilterComboBox.getSelectedItem());
             dateRangePanel.setVisible(isCustom);
@@ -348,8 +400,7 @@ public class BillingAppUI extends JFrame {
         panel.add(formsContainer, BorderLayout.NORTH);
         JPanel userListPanel = new JPanel(new BorderLayout());
         userListPanel.setBorder(BorderFactory.createTitledBorder("Current Users"));
-        String[] userColumns = {"Username", "Role"};
-        usersTableModel = new DefaultTableModel(userColumns, 0) { @Override public boolean isCellEditable(int r, int c){ return false; }};
+        usersTableModel = new UserTableModel();
         usersTable = new JTable(usersTableModel);
         userListPanel.add(new JScrollPane(usersTable), BorderLayout.CENTER);
         panel.add(userListPanel, BorderLayout.CENTER);
@@ -359,57 +410,70 @@ public class BillingAppUI extends JFrame {
     // --- Action Handler & Data Refresh Methods ---
 
     private void clearBillingPage() {
-        billItems.clear();
+        billTableModel.clear();
         discountField.setText("");
-        refreshBillTable();
+        updateTotalAmount();
         itemInputField.setText("");
         itemInputField.requestFocusInWindow();
     }
 
     private void finalizeBill() {
-        if (billItems.isEmpty()) {
+        if (billCart.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Cannot finalize an empty bill.", "Warning", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        double subtotal = billItems.entrySet().stream().mapToDouble(e -> e.getKey().getPrice() * e.getValue()).sum();
-        double discountValue = 0;
         try {
-            String discountText = discountField.getText().trim();
-            if (!discountText.isEmpty()) discountValue = Double.parseDouble(discountText);
+            applyDiscount();
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Invalid discount value. Please enter a valid number.", "Input Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        double discountAmount = 0;
-        if (discountValue > 0) {
-            if ("%".equals(discountTypeComboBox.getSelectedItem())) discountAmount = (subtotal * discountValue) / 100.0;
-            else discountAmount = discountValue;
-        }
-        double grandTotal = subtotal - discountAmount;
-        if (grandTotal < 0) grandTotal = 0;
-        int confirm = JOptionPane.showConfirmDialog(this, String.format("Subtotal: ₹ %.2f\nDiscount: - ₹ %.2f\nGrand Total: ₹ %.2f\n\nFinalize this bill?", subtotal, discountAmount, grandTotal), "Confirm Bill", JOptionPane.YES_NO_OPTION);
+        long subtotal = billCart.getSubtotalPaise();
+        long discountAmount = billCart.getDiscountPaise();
+        long grandTotal = billCart.getGrandTotalPaise();
+        int confirm = JOptionPane.showConfirmDialog(this, "Subtotal: ₹ " + Money.format(subtotal) + " (incl. tax ₹ " + Money.format(billCart.getTaxPaise()) + ")\nDiscount: - ₹ " + Money.format(discountAmount) + "\nGrand Total: ₹ " + Money.format(grandTotal) + "\n\nFinalize this bill?", "Confirm Bill", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            final double finalDiscount = discountAmount;
-            final double finalGrandTotal = grandTotal;
-            new SwingWorker<Long, Void>() {
-                @Override protected Long doInBackground() throws SQLException { return DatabaseManager.saveBill(billItems, finalGrandTotal); }
-                @Override protected void done() {
-                    try {
-                        long billId = get();
-                        PdfGenerator.generateBillPdf(billId, billItems, subtotal, finalDiscount, finalGrandTotal);
-                        JOptionPane.showMessageDialog(BillingAppUI.this, "Bill finalized successfully!\nPDF receipt has been saved.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                        clearBillingPage();
-                        if (inventoryTableModel != null) refreshInventoryTable();
-                        if (todaysSalesValueLabel != null) refreshDashboard();
-                    } catch (Exception e) {
-                        handleWorkerException(e, "Failed to Finalize Bill");
-                    }
+            Map<Product, Integer> items = billCart.toItemMap();
+            // One timestamp for the saved bill and its receipt, so both land in the same month's shard.
+            long billTime = System.currentTimeMillis();
+            CompletableFuture<Long> saved;
+            try {
+                saved = DatabaseManager.submitBill(items, grandTotal, billTime);
+            } catch (IOException e) {
+                handleWorkerException(e, "Failed to Finalize Bill");
+                return;
+            }
+            // The bill is safely journaled, so the cashier can start the next one while it commits.
+            clearBillingPage();
+            saved.whenComplete((billId, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    handleWorkerException(new ExecutionException(error), "Bill Not Saved - Please Ring It Up Again");
+                    return;
                 }
-            }.execute();
+                if (inventoryTableModel != null) refreshInventoryTable();
+                // The receipt renders in the background; the cashier is told once it is on disk. In lazy mode there is nothing to wait for.
+                deliver(ReceiptService.submit(billId, billTime, items, subtotal, discountAmount, grandTotal), receipt -> JOptionPane.showMessageDialog(BillingAppUI.this, receipt == null ? "Bill finalized successfully!" : "Bill finalized successfully!\nReceipt has been saved.", "Success", JOptionPane.INFORMATION_MESSAGE), "Bill Saved, but the Receipt Failed");
+            }));
         }
     }
     
+    /**
+     * Shows a notice on the billing page when a product drops to its reorder level, and clears it
+     * once that product is back above it. Other changes to low stock are left to the dashboard.
+     */
+    private void lowStockChanged(LowStockEvent event) {
+        if (event.isAlert()) {
+            lowStockAlertBarcode = event.getBarcode();
+            lowStockAlertLabel.setText("Low stock: " + event.getName() + " has " + event.getStockQuantity() + " left (reorder level " + event.getReorderLevel() + ")");
+        } else if (!event.isLow() && event.getBarcode().equals(lowStockAlertBarcode)) {
+            lowStockAlertBarcode = null;
+            lowStockAlertLabel.setText("");
+        }
+    }
+
     private void processItemInput() {
+        // A scanner types the whole barcode and Enter faster than the suggestions appear; don't show them afterwards.
+        itemAutocomplete.cancel();
         String input = itemInputField.getText().trim();
         if (input.isEmpty()) return;
         findProductByIdentifier(input, this::addItemToBill);
@@ -429,23 +493,50 @@ public class BillingAppUI extends JFrame {
             return;
         }
         findProductByIdentifier(identifier, product -> {
-            new SwingWorker<Boolean, Void>() {
-                @Override protected Boolean doInBackground() { return DatabaseManager.updateStock(product.getBarcode(), quantity); }
-                @Override protected void done() {
-                    try {
-                        if (get()) {
-                            JOptionPane.showMessageDialog(BillingAppUI.this, "Stock updated successfully for " + product.getName(), "Success", JOptionPane.INFORMATION_MESSAGE);
-                            updateProductIdentifierField.setText(""); 
-                            updateQuantityField.setText("");
-                            refreshInventoryTable();
-                        } else {
-                            throw new Exception("Product could not be updated in the database.");
-                        }
-                    } catch (Exception e) {
-                        handleWorkerException(e, "Failed to update stock");
-                    }
+            runInBackground(TaskScheduler.Lane.CHECKOUT, () -> DatabaseManager.updateStock(product.getBarcode(), quantity), updated -> {
+                if (updated) {
+                    JOptionPane.showMessageDialog(BillingAppUI.this, "Stock updated successfully for " + product.getName(), "Success", JOptionPane.INFORMATION_MESSAGE);
+                    updateProductIdentifierField.setText(""); 
+                    updateQuantityField.setText("");
+                    refreshInventoryTable();
+                } else {
+                    throw new Exception("Product could not be updated in the database.");
+                }
+            }, "Failed to update stock");
+        });
+    }
+
+    private void updateExistingReorderLevel() {
+        String identifier = updateProductIdentifierField.getText().trim();
+        if (identifier.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter a product barcode or name.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int reorderLevel;
+        try {
+            reorderLevel = Integer.parseInt(updateReorderLevelField.getText().trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Reorder level must be a valid integer.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (reorderLevel < 0) {
+            JOptionPane.showMessageDialog(this, "Reorder level cannot be negative.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (reorderLevel > 1_000_000) {
+            JOptionPane.showMessageDialog(this, "Reorder level cannot be more than 1,000,000.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        findProductByIdentifier(identifier, product -> {
+            runInBackground(TaskScheduler.Lane.CHECKOUT, () -> DatabaseManager.updateReorderLevel(product.getBarcode(), reorderLevel), updated -> {
+                if (updated) {
+                    JOptionPane.showMessageDialog(BillingAppUI.this, "Reorder level updated for " + product.getName(), "Success", JOptionPane.INFORMATION_MESSAGE);
+                    updateProductIdentifierField.setText("");
+                    updateReorderLevelField.setText("");
+                } else {
+                    throw new Exception("Product could not be updated in the database.");
                 }
-            }.execute();
+            }, "Failed to update reorder level");
         });
     }
 
@@ -458,68 +549,60 @@ public class BillingAppUI extends JFrame {
         findProductByIdentifier(identifier, product -> {
             int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to permanently delete '" + product.getName() + "'?\nThis action cannot be undone.", "Confirm Deletion", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
             if (confirm == JOptionPane.YES_OPTION) {
-                new SwingWorker<Boolean, Void>() {
-                    @Override protected Boolean doInBackground() { return DatabaseManager.deleteProductByBarcode(product.getBarcode()); }
-                    @Override protected void done() {
-                        try {
-                            if (get()) {
-                                JOptionPane.showMessageDialog(BillingAppUI.this, "Product deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                                deleteProductIdentifierField.setText("");
-                                refreshInventoryTable();
-                            } else {
-                                 throw new Exception("Product could not be deleted from the database.");
-                            }
-                        } catch (Exception e) {
-                            handleWorkerException(e, "Failed to delete product");
-                        }
+                runInBackground(TaskScheduler.Lane.CHECKOUT, () -> DatabaseManager.deleteProductByBarcode(product.getBarcode()), deleted -> {
+                    if (deleted) {
+                        JOptionPane.showMessageDialog(BillingAppUI.this, "Product deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        deleteProductIdentifierField.setText("");
+                        refreshInventoryTable();
+                    } else {
+                         throw new Exception("Product could not be deleted from the database.");
                     }
-                }.execute();
+                }, "Failed to delete product");
             }
         });
     }
 
     private void findProductByIdentifier(String identifier, Consumer<Product> onProductFound) {
-        new SwingWorker<List<Product>, Void>() {
-            @Override
-            protected List<Product> doInBackground() {
-                List<Product> foundProducts = new ArrayList<>();
-                if (identifier.matches("^\\d+$")) {
-                    Product p = DatabaseManager.findProductByBarcode(identifier);
-                    if (p != null) foundProducts.add(p);
-                }
-                if (foundProducts.isEmpty()) {
-                    foundProducts.addAll(DatabaseManager.findProductsByName(identifier));
-                }
-                return foundProducts;
-            }
-            @Override
-            protected void done() {
-                try {
-                    List<Product> products = get();
-                    if (products.isEmpty()) {
-                        JOptionPane.showMessageDialog(BillingAppUI.this, "No product found for '" + identifier + "'.", "Not Found", JOptionPane.WARNING_MESSAGE);
-                    } else if (products.size() == 1) {
-                        onProductFound.accept(products.get(0));
-                    } else {
-                        String[] productNames = products.stream().map(Product::getName).toArray(String[]::new);
-                        String selectedName = (String) JOptionPane.showInputDialog(BillingAppUI.this, "Multiple products found. Please select one:", "Select Product", JOptionPane.QUESTION_MESSAGE, null, productNames, productNames[0]);
-                        if (selectedName != null) {
-                            products.stream().filter(p -> p.getName().equals(selectedName)).findFirst().ifPresent(onProductFound);
-                        }
-                    }
-                } catch (Exception e) {
-                    handleWorkerException(e, "Error finding product");
-                }
+        if (ProductCatalog.isLoaded()) {
+            // The catalog is in memory, so the lookup is cheap enough to do directly on the EDT.
+            handleProductLookup(identifier, lookupProducts(identifier), onProductFound);
+            return;
+        }
+        runInBackground(TaskScheduler.Lane.LOOKUP, () -> lookupProducts(identifier), found -> handleProductLookup(identifier, found, onProductFound), "Error finding product");
+    }
+
+    private List<Product> lookupProducts(String identifier) {
+        List<Product> foundProducts = new ArrayList<>();
+        if (identifier.matches("^\\d+$")) {
+            Product p = ProductCatalog.findByBarcode(identifier);
+            if (p != null) foundProducts.add(p);
+        }
+        if (foundProducts.isEmpty()) {
+            foundProducts.addAll(ProductCatalog.findByName(identifier));
+        }
+        return foundProducts;
+    }
+
+    private void handleProductLookup(String identifier, List<Product> products, Consumer<Product> onProductFound) {
+        if (products.isEmpty()) {
+            JOptionPane.showMessageDialog(BillingAppUI.this, "No product found for '" + identifier + "'.", "Not Found", JOptionPane.WARNING_MESSAGE);
+        } else if (products.size() == 1) {
+            onProductFound.accept(products.get(0));
+        } else {
+            String[] productNames = products.stream().map(Product::getName).toArray(String[]::new);
+            String selectedName = (String) JOptionPane.showInputDialog(BillingAppUI.this, "Multiple products found. Please select one:", "Select Product", JOptionPane.QUESTION_MESSAGE, null, productNames, productNames[0]);
+            if (selectedName != null) {
+                products.stream().filter(p -> p.getName().equals(selectedName)).findFirst().ifPresent(onProductFound);
             }
-        }.execute();
+        }
     }
 
     private void addItemToBill(Product product) {
-        if (product.getStockQuantity() <= billItems.getOrDefault(product, 0)) {
+        if (product.getStockQuantity() <= billCart.getQuantity(product)) {
             JOptionPane.showMessageDialog(this, "Not enough stock for " + product.getName(), "Stock Alert", JOptionPane.WARNING_MESSAGE);
         } else {
-            billItems.put(product, billItems.getOrDefault(product, 0) + 1);
-            refreshBillTable();
+            billTableModel.add(product);
+            updateTotalAmount();
         }
     }
 
@@ -529,86 +612,77 @@ public class BillingAppUI extends JFrame {
             JOptionPane.showMessageDialog(this, "Please select an item from the bill to remove.", "No Item Selected", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        Product productToRemove = productsInBillTable.get(selectedRow);
-        int currentQuantity = billItems.get(productToRemove);
-        if (currentQuantity > 1) billItems.put(productToRemove, currentQuantity - 1);
-        else billItems.remove(productToRemove);
-        refreshBillTable();
+        billTableModel.removeOne(selectedRow);
+        updateTotalAmount();
     }
 
-    private void refreshBillTable() {
-        billTableModel.setRowCount(0);
-        productsInBillTable.clear();
-        for (Map.Entry<Product, Integer> entry : billItems.entrySet()) {
-            Product p = entry.getKey();
-            int qty = entry.getValue();
-            billTableModel.addRow(new Object[]{ p.getName(), p.getPrice(), p.getTaxSlab(), qty, p.getPrice() * qty });
-            productsInBillTable.add(p);
+    private void updateTotalAmount() {
+        totalAmountLabel.setText("Total: ₹ " + Money.format(billCart.getGrandTotalPaise()));
+    }
+
+    private void discountChanged() {
+        try {
+            applyDiscount();
+        } catch (NumberFormatException e) {
+            // Ignore for real-time update; finalizing reports it.
+            billCart.setFixedDiscount(0);
         }
         updateTotalAmount();
     }
-    
-    private void updateTotalAmount() {
-        double subtotal = billItems.entrySet().stream().mapToDouble(e -> e.getKey().getPrice() * e.getValue()).sum();
-        double discountValue = 0;
-        try {
-            String discountText = discountField.getText().trim();
-            if (!discountText.isEmpty()) discountValue = Double.parseDouble(discountText);
-        } catch (NumberFormatException e) { /* Ignore for real-time update */ }
-        double discountAmount = 0;
-        if (discountValue > 0) {
-            if ("%".equals(discountTypeComboBox.getSelectedItem())) discountAmount = (subtotal * discountValue) / 100.0;
-            else discountAmount = discountValue;
-        }
-        double grandTotal = subtotal - discountAmount;
-        if (grandTotal < 0) grandTotal = 0;
-        totalAmountLabel.setText(String.format("Total: ₹ %.2f", grandTotal));
+
+    /**
+     * Reads the discount field into the cart as either a percentage of the subtotal or a fixed rupee amount.
+     * An empty or non-positive value means no discount.
+     * @throws NumberFormatException If the field is not a number.
+     */
+    private void applyDiscount() {
+        String discountText = discountField.getText().trim();
+        if (discountText.isEmpty()) billCart.setFixedDiscount(0);
+        else if ("%".equals(discountTypeComboBox.getSelectedItem())) billCart.setDiscountPercent(Double.parseDouble(discountText));
+        else billCart.setFixedDiscount(Money.parse(discountText));
     }
     
-    private void refreshDashboard() {
-        if (todaysSalesValueLabel == null) return;
-        new SwingWorker<Map<String, Object>, Void>() {
-            @Override protected Map<String, Object> doInBackground() {
-                Map<String, Object> data = new HashMap<>();
-                data.put("sales", DatabaseManager.getTodaysTotalSales());
-                data.put("bills", DatabaseManager.getTodaysBillCount());
-                data.put("lowStock", DatabaseManager.getLowStockProducts(10));
-                data.put("topSelling", DatabaseManager.getTopSellingProductsThisMonth(5));
-                return data;
-            }
-            @Override protected void done() {
-                try {
-                    Map<String, Object> data = get();
-                    todaysSalesValueLabel.setText(String.format("₹ %.2f", (double) data.get("sales")));
-                    todaysBillsValueLabel.setText(String.valueOf((int) data.get("bills")));
-                    lowStockTableModel.setRowCount(0);
-                    @SuppressWarnings("unchecked") List<Product> lowStock = (List<Product>) data.get("lowStock");
-                    for (Product p : lowStock) lowStockTableModel.addRow(new Object[]{p.getName(), p.getStockQuantity()});
-                    topSellingTableModel.setRowCount(0);
-                    @SuppressWarnings("unchecked") List<Object[]> topSelling = (List<Object[]>) data.get("topSelling");
-                    for (Object[] row : topSelling) topSellingTableModel.addRow(row);
-                } catch (Exception e) {
-                    handleWorkerException(e, "Failed to load dashboard data");
-                }
+    /**
+     * Pushes dashboard changes into the labels and tables, touching only what changed.
+     */
+    private final class DashboardView implements DashboardState.Listener {
+        @Override public void salesChanged(long todaysSalesPaise, int todaysBillCount) {
+            setTextIfChanged(todaysSalesValueLabel, "₹ " + Money.format(todaysSalesPaise));
+            setTextIfChanged(todaysBillsValueLabel, String.valueOf(todaysBillCount));
+        }
+        @Override public void lowStockChanged(List<Product> products) {
+            List<Object[]> rows = new ArrayList<>(products.size());
+            for (Product p : products) rows.add(new Object[]{p.getName(), p.getStockQuantity(), p.getReorderLevel()});
+            syncRows(lowStockTableModel, rows);
+        }
+        @Override public void topSellingChanged(List<Object[]> rows) {
+            syncRows(topSellingTableModel, rows);
+        }
+    }
+
+    private static void setTextIfChanged(JLabel label, String text) {
+        if (!text.equals(label.getText())) label.setText(text);
+    }
+
+    /**
+     * Makes a table model hold the given rows, setting only the cells whose values differ
+     * so the table repaints just those cells instead of being rebuilt.
+     */
+    private static void syncRows(DefaultTableModel model, List<Object[]> rows) {
+        int common = Math.min(model.getRowCount(), rows.size());
+        for (int r = 0; r < common; r++) {
+            Object[] row = rows.get(r);
+            for (int c = 0; c < row.length; c++) {
+                if (!Objects.equals(model.getValueAt(r, c), row[c])) model.setValueAt(row[c], r, c);
             }
-        }.execute();
+        }
+        for (int r = common; r < rows.size(); r++) model.addRow(rows.get(r));
+        if (model.getRowCount() > rows.size()) model.setRowCount(rows.size());
     }
     
     private void refreshInventoryTable() {
         if (inventoryTableModel == null) return;
-        new SwingWorker<List<Product>, Void>() {
-            @Override protected List<Product> doInBackground() { return DatabaseManager.getAllProducts(); }
-            @Override protected void done() {
-                try {
-                    inventoryTableModel.setRowCount(0);
-                    for (Product p : get()) {
-                        inventoryTableModel.addRow(new Object[]{p.getBarcode(), p.getName(), p.getPrice(), p.getStockQuantity(), p.getTaxSlab()});
-                    }
-                } catch (Exception e) {
-                    handleWorkerException(e, "Failed to load inventory");
-                }
-            }
-        }.execute();
+        refreshInBackground("inventory", ProductCatalog::getAll, inventoryTableModel::setRows, "Failed to load inventory");
     }
 
     private void addNewProduct() {
@@ -618,166 +692,211 @@ public class BillingAppUI extends JFrame {
             JOptionPane.showMessageDialog(this, "Product Name cannot be empty.", "Input Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        double mrp, taxSlab;
+        long mrp;
+        double taxSlab;
         int stock;
+        int reorderLevel;
         try {
-            mrp = Double.parseDouble(newMrpField.getText().trim());
+            mrp = Money.parse(newMrpField.getText().trim());
             taxSlab = Double.parseDouble(newTaxSlabField.getText().trim());
             stock = Integer.parseInt(newStockField.getText().trim());
+            String reorderText = newReorderLevelField.getText().trim();
+            reorderLevel = reorderText.isEmpty() ? Product.DEFAULT_REORDER_LEVEL : Integer.parseInt(reorderText);
         } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "MRP, Tax Slab, and Stock must be valid numbers.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(this, "MRP, Tax Slab, Stock and Reorder Level must be valid numbers.", "Input Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        if (mrp <= 0 || stock < 0 || taxSlab < 0 || mrp > 1_000_000 || stock > 1_000_000) {
-             JOptionPane.showMessageDialog(this, "Please enter valid, reasonable values.\nMRP must be positive. Stock and Tax cannot be negative.", "Input Error", JOptionPane.ERROR_MESSAGE);
+        if (mrp <= 0 || stock < 0 || taxSlab < 0 || reorderLevel < 0 || mrp > 1_000_000 * Money.PAISE_PER_RUPEE || stock > 1_000_000 || reorderLevel > 1_000_000) {
+             JOptionPane.showMessageDialog(this, "Please enter valid, reasonable values.\nMRP must be positive. Stock, Tax and Reorder Level cannot be negative.", "Input Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
         if (barcode.isEmpty()) barcode = "N/A-" + UUID.randomUUID().toString().substring(0, 8);
-        Product product = new Product(barcode, name, mrp, stock, taxSlab);
-        new SwingWorker<Boolean, Void>() {
-            private boolean nameExists = false;
-            @Override protected Boolean doInBackground() {
-                if (DatabaseManager.doesProductNameExist(name)) {
-                    nameExists = true;
-                    return false;
-                }
-                return DatabaseManager.addProduct(product);
-            }
-            @Override protected void done() {
-                try {
-                    if (nameExists) {
-                        int confirm = JOptionPane.showConfirmDialog(BillingAppUI.this, "A product with the name '" + name + "' already exists.\nDo you still want to add this new product?", "Duplicate Product Name", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
-                        if (confirm == JOptionPane.YES_OPTION) addProductAfterConfirmation(product);
-                        return;
-                    }
-                    if (get()) {
-                        JOptionPane.showMessageDialog(BillingAppUI.this, "Product added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                        clearAddProductFields();
-                        refreshInventoryTableIfNeeded();
-                    } else {
-                        throw new Exception("A product with this barcode may already exist.");
-                    }
-                } catch (Exception e) {
-                     handleWorkerException(e, "Failed to add product");
-                }
+        Product product = new Product(barcode, name, mrp, stock, taxSlab, reorderLevel);
+        // null means the name is taken and nothing was written; the user is asked before adding a duplicate.
+        runInBackground(TaskScheduler.Lane.CHECKOUT, () -> DatabaseManager.doesProductNameExist(name) ? null : DatabaseManager.addProduct(product), added -> {
+            if (added == null) {
+                int confirm = JOptionPane.showConfirmDialog(BillingAppUI.this, "A product with the name '" + name + "' already exists.\nDo you still want to add this new product?", "Duplicate Product Name", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (confirm == JOptionPane.YES_OPTION) addProductAfterConfirmation(product);
+                return;
             }
-        }.execute();
+            productAdded(added);
+        }, "Failed to add product");
     }
     
     private void addProductAfterConfirmation(Product product) {
-        new SwingWorker<Boolean, Void>() {
-            @Override protected Boolean doInBackground() { return DatabaseManager.addProduct(product); }
-            @Override protected void done() {
-                try {
-                    if (get()) {
-                        JOptionPane.showMessageDialog(BillingAppUI.this, "Product added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                        clearAddProductFields();
-                        refreshInventoryTableIfNeeded();
-                    } else {
-                        throw new Exception("A product with this barcode may already exist.");
-                    }
-                } catch (Exception e) {
-                    handleWorkerException(e, "Failed to add product");
-                }
-            }
-        }.execute();
+        runInBackground(TaskScheduler.Lane.CHECKOUT, () -> DatabaseManager.addProduct(product), this::productAdded, "Failed to add product");
+    }
+
+    private void productAdded(boolean added) throws Exception {
+        if (added) {
+            JOptionPane.showMessageDialog(BillingAppUI.this, "Product added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+            clearAddProductFields();
+            refreshInventoryTableIfNeeded();
+        } else {
+            throw new Exception("A product with this barcode may already exist.");
+        }
     }
     
     private void clearAddProductFields() {
         newBarcodeField.setText(""); newNameField.setText(""); newMrpField.setText("");
         newTaxSlabField.setText(""); newStockField.setText("");
+        newReorderLevelField.setText(String.valueOf(Product.DEFAULT_REORDER_LEVEL));
     }
     
     private void showSelectedBillDetails() {
         int selectedRow = salesHistoryTable.getSelectedRow();
-        if (selectedRow < 0) return;
-        long billId;
-        double totalAmount;
-        try {
-            billId = Long.parseLong(salesHistoryTableModel.getValueAt(selectedRow, 0).toString());
-            totalAmount = Double.parseDouble(salesHistoryTableModel.getValueAt(selectedRow, 2).toString());
-        } catch (NumberFormatException | NullPointerException e) {
-            JOptionPane.showMessageDialog(this, "Could not parse bill details from table.", "Error", JOptionPane.ERROR_MESSAGE);
+        if (selectedRow < 0 || !salesHistoryTableModel.isLoaded(selectedRow)) return;
+        long billId = salesHistoryTableModel.getBillId(selectedRow);
+        long totalAmount = salesHistoryTableModel.getTotalPaise(selectedRow);
+        String billDate = DateTimes.format(salesHistoryTableModel.getBillTime(selectedRow));
+        runInBackground(TaskScheduler.Lane.LOOKUP, () -> DatabaseManager.getBillDetails(billId), items -> {
+            StringBuilder details = new StringBuilder();
+            details.append("--- Bill Details ---\n");
+            details.append("Bill ID: ").append(billId).append("\n");
+            details.append("Date: ").append(billDate).append("\n");
+            details.append("Total: ₹").append(Money.format(totalAmount)).append("\n\n");
+            details.append("--- Items Purchased ---\n");
+            details.append(String.format("%-25s %5s %10s %10s\n", "Name", "Qty", "Price", "Total"));
+            details.append("----------------------------------------------------------\n");
+            for (Object[] item : items) {
+                details.append(String.format("%-25.25s %5d %10s %10s\n", item[0], item[1], Money.format((long) item[2]), Money.format((long) item[3])));
+            }
+            JTextArea detailsArea = new JTextArea(details.toString());
+            detailsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+            detailsArea.setEditable(false);
+            JScrollPane scrollPane = new JScrollPane(detailsArea);
+            scrollPane.setPreferredSize(new Dimension(450, 300));
+            JOptionPane.showMessageDialog(BillingAppUI.this, scrollPane, "Bill Details - #" + billId, JOptionPane.INFORMATION_MESSAGE);
+        }, "Could not fetch bill details");
+    }
+    
+    private void viewSelectedReceipt() {
+        int selectedRow = salesHistoryTable.getSelectedRow();
+        if (selectedRow < 0 || !salesHistoryTableModel.isLoaded(selectedRow)) {
+            JOptionPane.showMessageDialog(this, "Please select a bill to view its receipt.", "No Bill Selected", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        String billDate = salesHistoryTableModel.getValueAt(selectedRow, 1).toString();
-        new SwingWorker<List<Object[]>, Void>() {
-            @Override protected List<Object[]> doInBackground() { return DatabaseManager.getBillDetails(billId); }
-            @Override protected void done() {
-                try {
-                    List<Object[]> items = get();
-                    StringBuilder details = new StringBuilder();
-                    details.append("--- Bill Details ---\n");
-                    details.append("Bill ID: ").append(billId).append("\n");
-                    details.append("Date: ").append(billDate).append("\n");
-                    details.append("Total: ₹").append(String.format("%.2f", totalAmount)).append("\n\n");
-                    details.append("--- Items Purchased ---\n");
-                    details.append(String.format("%-25s %5s %10s %10s\n", "Name", "Qty", "Price", "Total"));
-                    details.append("----------------------------------------------------------\n");
-                    for (Object[] item : items) {
-                        details.append(String.format("%-25.25s %5d %10.2f %10.2f\n", item[0], item[1], item[2], item[3]));
-                    }
-                    JTextArea detailsArea = new JTextArea(details.toString());
-                    detailsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-                    detailsArea.setEditable(false);
-                    JScrollPane scrollPane = new JScrollPane(detailsArea);
-                    scrollPane.setPreferredSize(new Dimension(450, 300));
-                    JOptionPane.showMessageDialog(BillingAppUI.this, scrollPane, "Bill Details - #" + billId, JOptionPane.INFORMATION_MESSAGE);
-                } catch (Exception e) {
-                    handleWorkerException(e, "Could not fetch bill details");
-                }
+        long billId = salesHistoryTableModel.getBillId(selectedRow);
+        runInBackground(TaskScheduler.Lane.LOOKUP, () -> ReceiptService.findReceipt(billId), receipt -> showReceipt(billId, receipt), "Could not open the receipt");
+    }
+
+    private void rebuildReceipts(JButton rebuildButton) {
+        int bills = salesHistoryTableModel.getRowCount();
+        if (bills == 0) {
+            JOptionPane.showMessageDialog(this, "There are no bills in the selected range.", "Nothing to Rebuild", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        int confirm = JOptionPane.showConfirmDialog(this, "Render the receipts of all " + bills + " bills shown again and replace the stored copies?", "Rebuild Receipts", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+        long from = salesHistoryTableModel.getFromMillis();
+        long to = salesHistoryTableModel.getToMillis();
+        rebuildButton.setEnabled(false);
+        runInBackground(TaskScheduler.Lane.BACKGROUND, () -> {
+            try {
+                return ReceiptService.rebuild(from, to);
+            } finally {
+                SwingUtilities.invokeLater(() -> rebuildButton.setEnabled(true));
             }
-        }.execute();
+        }, result -> JOptionPane.showMessageDialog(this, "Receipts rebuilt: " + result.rendered + "\nBills without items: " + result.skipped + "\nFailed: " + result.failed, "Rebuild Receipts", result.failed > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE), "Could not rebuild receipts");
     }
-    
+
+    private void exportSalesHistory(JButton exportButton) {
+        if (salesHistoryTableModel.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(this, "There are no bills in the selected range.", "Nothing to Export", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Sales History");
+        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV spreadsheet (*.csv)", "csv");
+        chooser.addChoosableFileFilter(csvFilter);
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("PDF report (*.pdf)", "pdf"));
+        chooser.setAcceptAllFileFilterUsed(false);
+        chooser.setFileFilter(csvFilter);
+        chooser.setSelectedFile(new File("sales-" + LocalDate.now(DateTimes.ZONE) + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        SalesReportExporter.Format format = SalesReportExporter.Format.forFileName(file.getName());
+        if (format == null) {
+            // No recognised extension typed: use the chosen filter's.
+            format = chooser.getFileFilter() == csvFilter ? SalesReportExporter.Format.CSV : SalesReportExporter.Format.PDF;
+            file = new File(file.getPath() + "." + format.extension);
+        }
+        if (file.exists() && JOptionPane.showConfirmDialog(this, file.getName() + " already exists. Replace it?", "Export Sales History", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) return;
+        SalesReportExporter.Format exportFormat = format;
+        Path target = file.toPath();
+        long from = salesHistoryTableModel.getFromMillis();
+        long to = salesHistoryTableModel.getToMillis();
+        exportButton.setEnabled(false);
+        runInBackground(TaskScheduler.Lane.BACKGROUND, () -> {
+            try {
+                return SalesReportExporter.export(from, to, exportFormat, target);
+            } finally {
+                SwingUtilities.invokeLater(() -> exportButton.setEnabled(true));
+            }
+        }, result -> JOptionPane.showMessageDialog(this, "Exported " + result.bills + " bills (" + result.items + " items) to:\n" + result.file, "Export Complete", JOptionPane.INFORMATION_MESSAGE), "Could not export sales history");
+    }
+
+    /**
+     * Opens a PDF receipt in the system viewer, from a temporary copy, and shows a thermal receipt as text.
+     */
+    private void showReceipt(long billId, ReceiptArchive.Receipt receipt) throws IOException {
+        if (receipt == null) {
+            JOptionPane.showMessageDialog(this, "Bill #" + billId + " has no items to print a receipt for.", "Receipt Not Found", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if ("pdf".equals(receipt.format)) {
+            Path file = Files.createTempFile("Bill_" + billId + "-", ".pdf");
+            file.toFile().deleteOnExit();
+            Files.write(file, receipt.data);
+            if (Desktop.isDesktopSupported() && Desktop.getDesktop().isSupported(Desktop.Action.OPEN)) {
+                Desktop.getDesktop().open(file.toFile());
+            } else {
+                JOptionPane.showMessageDialog(this, "The receipt was saved to:\n" + file, "Receipt - #" + billId, JOptionPane.INFORMATION_MESSAGE);
+            }
+            return;
+        }
+        String text = "prn".equals(receipt.format) ? EscPosReceiptRenderer.toPlainText(receipt.data) : new String(receipt.data, StandardCharsets.US_ASCII);
+        JTextArea receiptArea = new JTextArea(text);
+        receiptArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        receiptArea.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(receiptArea);
+        scrollPane.setPreferredSize(new Dimension(450, 400));
+        JOptionPane.showMessageDialog(this, scrollPane, "Receipt - #" + billId, JOptionPane.INFORMATION_MESSAGE);
+    }
+
     private void refreshSalesHistoryTable() {
         if (salesFilterComboBox == null || salesHistoryTableModel == null) return;
-        String filter = (String) salesFilterComboBox.getSelectedItem();
-        new SwingWorker<List<Object[]>, Void>() {
-            @Override protected List<Object[]> doInBackground() throws Exception {
-                if ("Custom Range".equals(filter)) {
-                    String fromDate = fromDateField.getText().trim();
-                    String toDate = toDateField.getText().trim();
-                    try {
-                        LocalDate.parse(fromDate);
-                        LocalDate.parse(toDate);
-                    } catch (DateTimeParseException e) {
-                        throw new Exception("Invalid date format. Please use YYYY-MM-DD.");
-                    }
-                    return DatabaseManager.getSalesHistoryByDateRange(fromDate, toDate);
-                } else {
-                    return DatabaseManager.getSalesHistory(filter);
-                }
-            }
-            @Override protected void done() {
+        long from;
+        long to = DateTimes.endOfDay(LocalDate.now(DateTimes.ZONE));
+        switch ((String) salesFilterComboBox.getSelectedItem()) {
+            case "Today": from = DateTimes.startOfToday(); break;
+            case "This Week": from = DateTimes.startOfWeek(); break;
+            case "This Month": from = DateTimes.startOfMonth(); break;
+            case "Custom Range":
                 try {
-                    salesHistoryTableModel.setRowCount(0);
-                    for (Object[] row : get()) salesHistoryTableModel.addRow(row);
-                } catch (Exception e) {
-                    handleWorkerException(e, "Error Fetching Sales History");
+                    // The whole of both end days is included: [start of fromDate, start of the day after toDate)
+                    from = DateTimes.startOfDay(LocalDate.parse(fromDateField.getText().trim()));
+                    to = DateTimes.endOfDay(LocalDate.parse(toDateField.getText().trim()));
+                } catch (DateTimeParseException e) {
+                    JOptionPane.showMessageDialog(this, "Invalid date format. Please use YYYY-MM-DD.", "Error Fetching Sales History", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            }
-        }.execute();
+                break;
+            default: from = 0;
+        }
+        // Only the count is read now; rows are fetched a page at a time as they scroll into view.
+        salesHistoryTableModel.setRange(from, to);
     }
 
     private void refreshUsersTable() {
         if (usersTableModel == null || userSelectionComboBox == null) return;
-        new SwingWorker<List<User>, Void>() {
-            @Override protected List<User> doInBackground() { return DatabaseManager.getAllUsers(); }
-            @Override protected void done() {
-                try {
-                    List<User> users = get();
-                    usersTableModel.setRowCount(0);
-                    for (User user : users) usersTableModel.addRow(new Object[]{user.getUsername(), user.getRole()});
-                    Object selectedItem = userSelectionComboBox.getSelectedItem();
-                    userSelectionComboBox.removeAllItems();
-                    for (User user : users) userSelectionComboBox.addItem(user.getUsername());
-                    if (selectedItem != null) userSelectionComboBox.setSelectedItem(selectedItem);
-                } catch (Exception e) {
-                     handleWorkerException(e, "Could not fetch user list");
-                }
-            }
-        }.execute();
+        refreshInBackground("users", DatabaseManager::getAllUsers, users -> {
+            usersTableModel.setRows(users);
+            Object selectedItem = userSelectionComboBox.getSelectedItem();
+            userSelectionComboBox.removeAllItems();
+            for (User user : users) userSelectionComboBox.addItem(user.getUsername());
+            if (selectedItem != null) userSelectionComboBox.setSelectedItem(selectedItem);
+        }, "Could not fetch user list");
     }
 
     private void addStaffMember() {
@@ -788,24 +907,16 @@ public class BillingAppUI extends JFrame {
             return;
         }
         String password = new String(passwordChars);
-        new SwingWorker<Boolean, Void>() {
-            @Override protected Boolean doInBackground() { return DatabaseManager.addUser(username, password, "staff"); }
-            @Override protected void done() {
-                try {
-                    if (get()) {
-                        JOptionPane.showMessageDialog(BillingAppUI.this, "Staff member added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                        newStaffUsernameField.setText(""); newStaffPasswordField.setText("");
-                        refreshUsersTable();
-                    } else {
-                        throw new Exception("Username may already exist.");
-                    }
-                } catch (Exception e) {
-                     handleWorkerException(e, "Failed to add staff member");
-                } finally {
-                    java.util.Arrays.fill(passwordChars, ' ');
-                }
+        java.util.Arrays.fill(passwordChars, ' ');
+        runInBackground(TaskScheduler.Lane.CHECKOUT, () -> DatabaseManager.addUser(username, password, "staff"), added -> {
+            if (added) {
+                JOptionPane.showMessageDialog(BillingAppUI.this, "Staff member added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                newStaffUsernameField.setText(""); newStaffPasswordField.setText("");
+                refreshUsersTable();
+            } else {
+                throw new Exception("Username may already exist.");
             }
-        }.execute();
+        }, "Failed to add staff member");
     }
 
     private void resetUserPassword() {
@@ -821,26 +932,16 @@ public class BillingAppUI extends JFrame {
         }
         String newPassword = new String(newPasswordChars);
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to reset the password for user '" + selectedUser + "'?", "Confirm Password Reset", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        java.util.Arrays.fill(newPasswordChars, ' ');
         if (confirm == JOptionPane.YES_OPTION) {
-            new SwingWorker<Boolean, Void>() {
-                @Override protected Boolean doInBackground() { return DatabaseManager.resetUserPassword(selectedUser, newPassword); }
-                @Override protected void done() {
-                    try {
-                        if (get()) {
-                            JOptionPane.showMessageDialog(BillingAppUI.this, "Password for user '" + selectedUser + "' has been reset successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                            resetPasswordField.setText("");
-                        } else {
-                            throw new Exception("Failed to reset password in database.");
-                        }
-                    } catch (Exception e) {
-                        handleWorkerException(e, "Failed to reset password");
-                    } finally {
-                        java.util.Arrays.fill(newPasswordChars, ' ');
-                    }
+            runInBackground(TaskScheduler.Lane.CHECKOUT, () -> DatabaseManager.resetUserPassword(selectedUser, newPassword), reset -> {
+                if (reset) {
+                    JOptionPane.showMessageDialog(BillingAppUI.this, "Password for user '" + selectedUser + "' has been reset successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    resetPasswordField.setText("");
+                } else {
+                    throw new Exception("Failed to reset password in database.");
                 }
-            }.execute();
-        } else {
-             java.util.Arrays.fill(newPasswordChars, ' ');
+            }, "Failed to reset password");
         }
     }
     
@@ -850,12 +951,46 @@ public class BillingAppUI extends JFrame {
         }
     }
     
+    /**
+     * The part of a background task that runs on the EDT once it finishes. Throwing reports the failure.
+     */
+    private interface UiCallback<T> {
+        void accept(T result) throws Exception;
+    }
+
+    /**
+     * Runs blocking work on a scheduler lane, then hands its result to {@code onDone} on the EDT.
+     */
+    private <T> void runInBackground(TaskScheduler.Lane lane, Callable<T> task, UiCallback<T> onDone, String errorTitle) {
+        deliver(TaskScheduler.submit(lane, task), onDone, errorTitle);
+    }
+
+    /**
+     * Like {@link #runInBackground} on the refresh lane, but a newer refresh with the same key supersedes this one.
+     */
+    private <T> void refreshInBackground(String key, Callable<T> task, UiCallback<T> onDone, String errorTitle) {
+        deliver(TaskScheduler.submitLatest(TaskScheduler.Lane.REFRESH, key, task), onDone, errorTitle);
+    }
+
+    private <T> void deliver(CompletableFuture<T> future, UiCallback<T> onDone, String errorTitle) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            // A superseded refresh has nothing to report; its replacement will update the table.
+            if (TaskScheduler.isCancellation(error)) return;
+            try {
+                if (error != null) throw new ExecutionException(error);
+                onDone.accept(result);
+            } catch (Exception e) {
+                handleWorkerException(e, errorTitle);
+            }
+        }));
+    }
+
     private void handleWorkerException(Exception e, String title) {
         e.printStackTrace();
         Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
         String detailedMessage = "An error occurred: " + cause.getMessage();
         if (cause.getMessage() != null && (cause.getMessage().toLowerCase().contains("no such column") || cause.getMessage().toLowerCase().contains("has no column"))) {
-            detailedMessage += "\n\nThis is likely due to an outdated database file. Please delete 'inventory.db' and restart the application.";
+            detailedMessage += "\n\nThe database schema may be out of date. Restart the application so pending schema upgrades are applied; your data will be kept.";
         }
         JOptionPane.showMessageDialog(this, detailedMessage, title, JOptionPane.ERROR_MESSAGE);
     }
@@ -0,0 +1,199 @@
+package com.mycompany.billingsystem.ui;
+
+import com.mycompany.billingsystem.db.DatabaseManager;
+import com.mycompany.billingsystem.db.LowStockWatcher;
+import com.mycompany.billingsystem.db.TopSellers;
+import com.mycompany.billingsystem.event.BillCommittedEvent;
+import com.mycompany.billingsystem.event.EventBus;
+import com.mycompany.billingsystem.event.LowStockEvent;
+import com.mycompany.billingsystem.event.ProductChangedEvent;
+import com.mycompany.billingsystem.model.Product;
+import com.mycompany.billingsystem.util.DateTimes;
+import com.mycompany.billingsystem.util.TaskScheduler;
+
+import javax.swing.SwingUtilities;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The figures shown on the Dashboard tab, kept up to date by events instead of re-querying.
+ *
+ * A snapshot is loaded once from the rollup tables; after that every {@link BillCommittedEvent}
+ * adds to today's totals and re-reads this month's best sellers from {@link TopSellers}, and
+ * each {@link LowStockEvent} re-reads the low-stock list from {@link LowStockWatcher}. Only the parts that actually changed are reported to the {@link Listener}.
+ *
+ * All state is confined to the Swing event dispatch thread: bus handlers hop onto it before
+ * touching anything, and listener callbacks are made on it.
+ */
+final class DashboardState {
+
+    /**
+     * Receives dashboard changes on the event dispatch thread.
+     */
+    interface Listener {
+        void salesChanged(long todaysSalesPaise, int todaysBillCount);
+        /** @param products Products at or below their reorder level, furthest below first. */
+        void lowStockChanged(List<Product> products);
+        /** @param rows {product name, units sold this month}, best seller first. */
+        void topSellingChanged(List<Object[]> rows);
+    }
+
+    static final int TOP_SELLING_COUNT = 5;
+
+    private final Listener listener;
+    private final List<Runnable> subscriptions = new ArrayList<>();
+
+    private LocalDate day;
+    private long lastBillId = Long.MAX_VALUE;
+    private boolean loading = false;
+    /** Bills committed while a snapshot was loading; applied once it arrives if it does not include them. */
+    private final List<BillCommittedEvent> pendingBills = new ArrayList<>();
+
+    private long todaysSalesPaise;
+    private int todaysBillCount;
+    /** The rows last reported to the listener: {product name, units sold this month}. */
+    private List<Object[]> topSelling = new ArrayList<>();
+    /** The products last reported to the listener. */
+    private List<Product> lowStock = new ArrayList<>();
+
+    DashboardState(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Subscribes to the event bus and loads the first snapshot. Call on the event dispatch thread.
+     */
+    void start() {
+        subscriptions.add(EventBus.subscribe(BillCommittedEvent.class, event -> SwingUtilities.invokeLater(() -> onBillCommitted(event))));
+        subscriptions.add(EventBus.subscribe(ProductChangedEvent.class, event -> SwingUtilities.invokeLater(this::onProductChanged)));
+        subscriptions.add(EventBus.subscribe(LowStockEvent.class, event -> SwingUtilities.invokeLater(this::onLowStockChanged)));
+        reload();
+    }
+
+    void stop() {
+        for (Runnable unsubscribe : subscriptions) unsubscribe.run();
+        subscriptions.clear();
+    }
+
+    /**
+     * Reloads the snapshot if the day has changed since it was taken, so "today" and "this month" roll over.
+     */
+    void refreshIfDayChanged() {
+        if (!loading && !LocalDate.now(DateTimes.ZONE).equals(day)) reload();
+    }
+
+    private void reload() {
+        loading = true;
+        TaskScheduler.submitLatest(TaskScheduler.Lane.REFRESH, "dashboard", () -> {
+            DatabaseManager.SalesSnapshot snapshot = DatabaseManager.getSalesSnapshot();
+            List<Product> lowStockProducts = LowStockWatcher.isLoaded() ? LowStockWatcher.getLowStock() : DatabaseManager.getLowStockProducts();
+            return new Object[]{snapshot, lowStockProducts, TopSellers.top(TopSellers.Window.THIS_MONTH, TOP_SELLING_COUNT)};
+        }).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (TaskScheduler.isCancellation(error)) return;
+            loading = false;
+            if (error != null) {
+                System.err.println("Error loading dashboard: " + error.getMessage());
+                return;
+            }
+            @SuppressWarnings("unchecked") List<Product> lowStockProducts = (List<Product>) result[1];
+            @SuppressWarnings("unchecked") List<Object[]> topSellingRows = (List<Object[]>) result[2];
+            apply((DatabaseManager.SalesSnapshot) result[0], lowStockProducts, topSellingRows);
+        }));
+    }
+
+    private void apply(DatabaseManager.SalesSnapshot snapshot, List<Product> lowStockProducts, List<Object[]> topSellingRows) {
+        if (snapshot == null) return;
+        day = LocalDate.now(DateTimes.ZONE);
+        lastBillId = snapshot.lastBillId;
+        todaysSalesPaise = snapshot.todaysSalesPaise;
+        todaysBillCount = snapshot.todaysBillCount;
+        topSelling = topSellingRows;
+        lowStock = lowStockProducts;
+
+        for (BillCommittedEvent event : pendingBills) {
+            if (event.getBillId() <= lastBillId) continue;
+            addBill(event);
+        }
+        pendingBills.clear();
+        // Stock may have moved while the snapshot was loading.
+        refreshLowStock();
+
+        listener.salesChanged(todaysSalesPaise, todaysBillCount);
+        listener.lowStockChanged(lowStock);
+        refreshTopSelling();
+        listener.topSellingChanged(topSelling);
+    }
+
+    private void onBillCommitted(BillCommittedEvent event) {
+        if (loading) {
+            pendingBills.add(event);
+            return;
+        }
+        // Already counted in the snapshot, or the snapshot is from another day and will be replaced.
+        if (event.getBillId() <= lastBillId) return;
+        if (!LocalDate.now(DateTimes.ZONE).equals(day)) {
+            reload();
+            return;
+        }
+        addBill(event);
+        listener.salesChanged(todaysSalesPaise, todaysBillCount);
+        if (refreshTopSelling()) listener.topSellingChanged(topSelling);
+    }
+
+    private void onProductChanged() {
+        // A deleted or renamed product changes the names in the top sellers.
+        if (!loading && refreshTopSelling()) listener.topSellingChanged(topSelling);
+    }
+
+    private void onLowStockChanged() {
+        // A snapshot that is still loading re-reads the list when it arrives.
+        if (!loading && refreshLowStock()) listener.lowStockChanged(lowStock);
+    }
+
+    /**
+     * Adds a bill to today's totals.
+     */
+    private void addBill(BillCommittedEvent event) {
+        lastBillId = Math.max(lastBillId, event.getBillId());
+        todaysSalesPaise += event.getTotalPaise();
+        todaysBillCount++;
+    }
+
+    /**
+     * Re-reads this month's best sellers from the in-memory {@link TopSellers} sketch.
+     * @return Whether the rows differ from those last reported.
+     */
+    private boolean refreshTopSelling() {
+        if (!TopSellers.isLoaded()) return false;
+        List<Object[]> rows = TopSellers.top(TopSellers.Window.THIS_MONTH, TOP_SELLING_COUNT);
+        if (rows.size() == topSelling.size()) {
+            boolean same = true;
+            for (int i = 0; i < rows.size() && same; i++) same = Arrays.equals(rows.get(i), topSelling.get(i));
+            if (same) return false;
+        }
+        topSelling = rows;
+        return true;
+    }
+
+    /**
+     * Re-reads the products at or below their reorder level from the in-memory {@link LowStockWatcher}.
+     * @return Whether the list differs from the one last reported.
+     */
+    private boolean refreshLowStock() {
+        if (!LowStockWatcher.isLoaded()) return false;
+        List<Product> products = LowStockWatcher.getLowStock();
+        if (products.size() == lowStock.size()) {
+            boolean same = true;
+            for (int i = 0; i < products.size() && same; i++) same = sameRow(products.get(i), lowStock.get(i));
+            if (same) return false;
+        }
+        lowStock = products;
+        return true;
+    }
+
+    private static boolean sameRow(Product a, Product b) {
+        return a.equals(b) && a.getName().equals(b.getName()) && a.getStockQuantity() == b.getStockQuantity() && a.getReorderLevel() == b.getReorderLevel();
+    }
+}
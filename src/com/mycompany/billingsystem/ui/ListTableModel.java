@@ -0,0 +1,42 @@
+package com.mycompany.billingsystem.ui;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only table model that shows a list of objects as rows without copying them.
+ * Cell values are produced on demand for the rows the table actually paints, and replacing
+ * the list fires a single change event however many rows it has.
+ */
+abstract class ListTableModel<T> extends AbstractTableModel {
+
+    private final String[] columnNames;
+    private List<T> rows = new ArrayList<>();
+
+    ListTableModel(String... columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * @return The value shown in the given column for a row object.
+     */
+    protected abstract Object valueAt(T row, int column);
+
+    /**
+     * Shows a new list. The list is used as is and must not be modified afterwards.
+     */
+    void setRows(List<T> rows) {
+        this.rows = rows;
+        fireTableDataChanged();
+    }
+
+    T getRow(int row) {
+        return rows.get(row);
+    }
+
+    @Override public int getRowCount() { return rows.size(); }
+    @Override public int getColumnCount() { return columnNames.length; }
+    @Override public String getColumnName(int column) { return columnNames[column]; }
+    @Override public Object getValueAt(int row, int column) { return valueAt(rows.get(row), column); }
+}
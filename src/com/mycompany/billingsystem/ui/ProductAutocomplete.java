@@ -0,0 +1,179 @@
+package com.mycompany.billingsystem.ui;
+
+import com.mycompany.billingsystem.db.ProductCatalog;
+import com.mycompany.billingsystem.model.Money;
+import com.mycompany.billingsystem.model.Product;
+import com.mycompany.billingsystem.util.TaskScheduler;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.Component;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Type-ahead product suggestions under a text field.
+ *
+ * Keystrokes restart a short debounce timer; only when typing pauses is the query handed to the
+ * scheduler's lookup lane, which answers it from {@link ProductCatalog#suggest} without touching
+ * SQLite. A newer query supersedes one that has not started yet, and results for anything but the
+ * latest query are dropped, so a slow answer never overwrites a newer one.
+ *
+ * Up and Down move through the suggestions, Enter or a click picks one, Escape closes the list.
+ * While the list is closed, Enter reaches the field's own action as before.
+ */
+final class ProductAutocomplete {
+
+    static final int MAX_SUGGESTIONS = 8;
+    private static final int DEBOUNCE_MILLIS = 150;
+
+    private final JTextField field;
+    private final Consumer<Product> onSelect;
+    private final DefaultListModel<Product> suggestions = new DefaultListModel<>();
+    private final JList<Product> list = new JList<>(suggestions);
+    private final JPopupMenu popup = new JPopupMenu();
+    private final Timer debounce;
+
+    /** Incremented for every query and every cancellation; only results for the current value are shown. */
+    private int generation = 0;
+    private CompletableFuture<List<Product>> pending;
+    /** Set while the field is changed programmatically, so it does not trigger a search. */
+    private boolean adjusting = false;
+
+    private ProductAutocomplete(JTextField field, Consumer<Product> onSelect) {
+        this.field = field;
+        this.onSelect = onSelect;
+        debounce = new Timer(DEBOUNCE_MILLIS, e -> search(field.getText()));
+        debounce.setRepeats(false);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override public Component getListCellRendererComponent(JList<?> l, Object value, int index, boolean selected, boolean focused) {
+                super.getListCellRendererComponent(l, value, index, selected, focused);
+                Product p = (Product) value;
+                setText(p.getName() + "  [" + p.getBarcode() + "]  ₹ " + Money.format(p.getPricePaise()) + "  (stock " + p.getStockQuantity() + ")");
+                return this;
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setBorder(null);
+        popup.add(scrollPane);
+        popup.setFocusable(false);
+    }
+
+    /**
+     * Attaches suggestions to a field.
+     * @param onSelect Called on the event dispatch thread with the product the user picked; the field is then cleared.
+     */
+    static ProductAutocomplete install(JTextField field, Consumer<Product> onSelect) {
+        ProductAutocomplete autocomplete = new ProductAutocomplete(field, onSelect);
+        autocomplete.listen();
+        return autocomplete;
+    }
+
+    private void listen() {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void changedUpdate(DocumentEvent e) { textChanged(); }
+            public void removeUpdate(DocumentEvent e) { textChanged(); }
+            public void insertUpdate(DocumentEvent e) { textChanged(); }
+        });
+        field.addKeyListener(new KeyAdapter() {
+            @Override public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) return;
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN: moveSelection(1); e.consume(); break;
+                    case KeyEvent.VK_UP: moveSelection(-1); e.consume(); break;
+                    case KeyEvent.VK_ESCAPE: cancel(); e.consume(); break;
+                    case KeyEvent.VK_ENTER:
+                        // Consuming the key keeps it from also firing the field's action.
+                        if (list.getSelectedIndex() >= 0) { pick(list.getSelectedValue()); e.consume(); }
+                        else cancel();
+                        break;
+                    default:
+                }
+            }
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override public void focusLost(FocusEvent e) { cancel(); }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) pick(suggestions.get(index));
+            }
+        });
+    }
+
+    /**
+     * Drops any pending or displayed suggestions.
+     */
+    void cancel() {
+        debounce.stop();
+        generation++;
+        if (pending != null) pending.cancel(false);
+        pending = null;
+        popup.setVisible(false);
+    }
+
+    private void textChanged() {
+        if (adjusting) return;
+        if (field.getText().trim().isEmpty()) cancel();
+        else debounce.restart();
+    }
+
+    private void search(String query) {
+        int requested = ++generation;
+        pending = TaskScheduler.submitLatest(TaskScheduler.Lane.LOOKUP, "autocomplete", () -> ProductCatalog.suggest(query, MAX_SUGGESTIONS));
+        pending.thenAccept(results -> SwingUtilities.invokeLater(() -> {
+            if (requested == generation) show(results);
+        }));
+    }
+
+    private void show(List<Product> results) {
+        pending = null;
+        if (results.isEmpty() || !field.isShowing()) {
+            popup.setVisible(false);
+            return;
+        }
+        suggestions.clear();
+        for (Product product : results) suggestions.addElement(product);
+        list.setVisibleRowCount(results.size());
+        list.setSelectedIndex(0);
+        popup.pack();
+        if (!popup.isVisible()) popup.show(field, 0, field.getHeight());
+    }
+
+    private void moveSelection(int delta) {
+        int index = Math.max(0, Math.min(suggestions.size() - 1, list.getSelectedIndex() + delta));
+        list.setSelectedIndex(index);
+        list.ensureIndexIsVisible(index);
+    }
+
+    private void pick(Product product) {
+        cancel();
+        adjusting = true;
+        try {
+            field.setText("");
+        } finally {
+            adjusting = false;
+        }
+        onSelect.accept(product);
+    }
+}
@@ -0,0 +1,26 @@
+package com.mycompany.billingsystem.ui;
+
+import com.mycompany.billingsystem.model.Money;
+import com.mycompany.billingsystem.model.Product;
+
+/**
+ * The inventory table, backed directly by the catalog's product list.
+ */
+final class ProductTableModel extends ListTableModel<Product> {
+
+    ProductTableModel() {
+        super("Barcode", "Name", "MRP", "Stock", "Reorder Level", "Tax Slab (%)");
+    }
+
+    @Override
+    protected Object valueAt(Product p, int column) {
+        switch (column) {
+            case 0: return p.getBarcode();
+            case 1: return p.getName();
+            case 2: return Money.format(p.getPricePaise());
+            case 3: return p.getStockQuantity();
+            case 4: return p.getReorderLevel();
+            default: return p.getTaxSlab();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.mycompany.billingsystem.ui;
+
+import com.mycompany.billingsystem.db.DatabaseManager;
+import com.mycompany.billingsystem.model.Money;
+import com.mycompany.billingsystem.util.DateTimes;
+import com.mycompany.billingsystem.util.TaskScheduler;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The sales history table, loaded a page at a time as rows are scrolled into view.
+ *
+ * The bill count is fetched first so the scroll bar has its full length straight away. Pages are
+ * then read by keyset on (bill_date, bill_id): once a page has loaded, the key of its last row is
+ * remembered as the start of the next one, so scrolling down is a sequence of index seeks however
+ * far back the history goes. Jumping past pages not yet seen skips rows from the nearest known key.
+ * Only the most recently used {@link #MAX_CACHED_PAGES} pages are kept, so memory stays bounded.
+ *
+ * Confined to the event dispatch thread.
+ */
+final class SalesHistoryTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+    private static final String[] COLUMNS = {"Bill ID", "Date", "Total Amount (₹)"};
+
+    private long fromMillis;
+    private long toMillis;
+    private int rowCount = 0;
+    /** Bumped by every {@link #setRange}, so results of an earlier query are dropped. */
+    private int generation = 0;
+
+    /** The key just above the first row of each page; page 0 starts at (toMillis, Long.MIN_VALUE). */
+    private long[] pageStartTimes = new long[0];
+    private long[] pageStartIds = new long[0];
+    private boolean[] pageStartKnown = new boolean[0];
+
+    private final Map<Integer, DatabaseManager.SalesHistory> pages = new LinkedHashMap<Integer, DatabaseManager.SalesHistory>(MAX_CACHED_PAGES * 2, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Integer, DatabaseManager.SalesHistory> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loadingPages = new HashSet<>();
+
+    /**
+     * Shows the bills created in [fromMillis, toMillis), newest first.
+     */
+    void setRange(long fromMillis, long toMillis) {
+        int requested = ++generation;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        rowCount = 0;
+        pages.clear();
+        loadingPages.clear();
+        fireTableDataChanged();
+        // Picking filters in quick succession supersedes the counts nobody will see.
+        TaskScheduler.submitLatest(TaskScheduler.Lane.REFRESH, "sales-history-count", () -> DatabaseManager.countBillsBetween(fromMillis, toMillis))
+                .whenComplete((count, error) -> SwingUtilities.invokeLater(() -> {
+                    if (requested != generation || TaskScheduler.isCancellation(error)) return;
+                    if (error != null) System.err.println("Error counting sales history: " + error.getMessage());
+                    else setRowCount(count);
+                }));
+    }
+
+    /** @return The start of the range shown, inclusive, in epoch millis. */
+    long getFromMillis() {
+        return fromMillis;
+    }
+
+    /** @return The end of the range shown, exclusive, in epoch millis. */
+    long getToMillis() {
+        return toMillis;
+    }
+
+    private void setRowCount(int count) {
+        int pageCount = (count + PAGE_SIZE - 1) / PAGE_SIZE;
+        pageStartTimes = new long[pageCount + 1];
+        pageStartIds = new long[pageCount + 1];
+        pageStartKnown = new boolean[pageCount + 1];
+        pageStartTimes[0] = toMillis;
+        pageStartIds[0] = Long.MIN_VALUE;
+        pageStartKnown[0] = true;
+        rowCount = count;
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return Whether the row's page is loaded, so its bill can be read.
+     */
+    boolean isLoaded(int row) {
+        DatabaseManager.SalesHistory page = pages.get(row / PAGE_SIZE);
+        return page != null && row % PAGE_SIZE < page.size();
+    }
+
+    /** Only valid for rows where {@link #isLoaded} is true. */
+    long getBillId(int row) { return pages.get(row / PAGE_SIZE).getBillId(row % PAGE_SIZE); }
+    long getBillTime(int row) { return pages.get(row / PAGE_SIZE).getBillTime(row % PAGE_SIZE); }
+    long getTotalPaise(int row) { return pages.get(row / PAGE_SIZE).getTotalPaise(row % PAGE_SIZE); }
+
+    @Override public int getRowCount() { return rowCount; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / PAGE_SIZE;
+        DatabaseManager.SalesHistory page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return column == 1 ? "Loading..." : "";
+        }
+        int index = row % PAGE_SIZE;
+        // Bills deleted since the count was taken leave the tail of the last page empty.
+        if (index >= page.size()) return "";
+        switch (column) {
+            case 0: return page.getBillId(index);
+            case 1: return DateTimes.format(page.getBillTime(index));
+            default: return Money.format(page.getTotalPaise(index));
+        }
+    }
+
+    private void requestPage(int pageIndex) {
+        if (!loadingPages.add(pageIndex)) return;
+        // Seek to the nearest page start already known and skip forward from there.
+        int known = pageIndex;
+        while (!pageStartKnown[known]) known--;
+        long startTime = pageStartTimes[known];
+        long startId = pageStartIds[known];
+        int offset = (pageIndex - known) * PAGE_SIZE;
+        long from = fromMillis;
+        long to = toMillis;
+        int requested = generation;
+        TaskScheduler.submit(TaskScheduler.Lane.REFRESH, () -> DatabaseManager.getSalesHistoryPage(from, to, startTime, startId, offset, PAGE_SIZE))
+                .whenComplete((page, error) -> SwingUtilities.invokeLater(() -> {
+                    if (requested != generation) return;
+                    loadingPages.remove(pageIndex);
+                    if (error != null) System.err.println("Error loading sales history page: " + error.getMessage());
+                    else pageLoaded(pageIndex, page);
+                }));
+    }
+
+    private void pageLoaded(int pageIndex, DatabaseManager.SalesHistory page) {
+        pages.put(pageIndex, page);
+        int last = page.size() - 1;
+        if (last >= 0 && pageIndex + 1 < pageStartKnown.length) {
+            pageStartTimes[pageIndex + 1] = page.getBillTime(last);
+            pageStartIds[pageIndex + 1] = page.getBillId(last);
+            pageStartKnown[pageIndex + 1] = true;
+        }
+        int firstRow = pageIndex * PAGE_SIZE;
+        int lastRow = Math.min(rowCount, firstRow + PAGE_SIZE) - 1;
+        if (lastRow >= firstRow) fireTableRowsUpdated(firstRow, lastRow);
+    }
+}
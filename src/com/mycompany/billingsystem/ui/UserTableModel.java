@@ -0,0 +1,18 @@
+package com.mycompany.billingsystem.ui;
+
+import com.mycompany.billingsystem.model.User;
+
+/**
+ * The staff table, backed directly by the list of users.
+ */
+final class UserTableModel extends ListTableModel<User> {
+
+    UserTableModel() {
+        super("Username", "Role");
+    }
+
+    @Override
+    protected Object valueAt(User user, int column) {
+        return column == 0 ? user.getUsername() : user.getRole();
+    }
+}
@@ -0,0 +1,72 @@
+package com.mycompany.billingsystem.util;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Conversions between bill timestamps (epoch milliseconds, as stored in bills.bill_date)
+ * and calendar days or display text. Every formatter here is an immutable
+ * {@link DateTimeFormatter}, so unlike SimpleDateFormat they are shared by all threads.
+ */
+public final class DateTimes {
+
+    /** The zone days are counted in: the shop's local time. */
+    public static final ZoneId ZONE = ZoneId.systemDefault();
+    /** The zone printed on receipts. */
+    public static final ZoneId RECEIPT_ZONE = ZoneId.of("Asia/Kolkata");
+
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZONE);
+    private static final DateTimeFormatter RECEIPT_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm:ss a").withZone(RECEIPT_ZONE);
+
+    private DateTimes() {}
+
+    /**
+     * @return The first millisecond of the given day in the shop's time zone.
+     */
+    public static long startOfDay(LocalDate day) {
+        return day.atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return The first millisecond after the given day, for half-open [start, end) ranges.
+     */
+    public static long endOfDay(LocalDate day) {
+        return startOfDay(day.plusDays(1));
+    }
+
+    public static long startOfToday() {
+        return startOfDay(LocalDate.now(ZONE));
+    }
+
+    public static long startOfWeek() {
+        return startOfDay(LocalDate.now(ZONE).with(DayOfWeek.MONDAY));
+    }
+
+    public static long startOfMonth() {
+        return startOfDay(LocalDate.now(ZONE).withDayOfMonth(1));
+    }
+
+    /**
+     * @return The calendar day a timestamp falls on in the shop's time zone.
+     */
+    public static LocalDate toLocalDate(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZONE).toLocalDate();
+    }
+
+    /**
+     * Formats a timestamp for tables and dialogs, e.g. "2025-10-15 13:52:01".
+     */
+    public static String format(long epochMillis) {
+        return DISPLAY_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * Formats a timestamp for printed receipts in Indian Standard Time, e.g. "15-10-2025 01:52:01 PM".
+     */
+    public static String formatForReceipt(long epochMillis) {
+        return RECEIPT_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+    }
+}
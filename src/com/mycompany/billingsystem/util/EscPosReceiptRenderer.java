@@ -0,0 +1,264 @@
+package com.mycompany.billingsystem.util;
+
+import com.mycompany.billingsystem.model.Money;
+import com.mycompany.billingsystem.model.Product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-width receipts for thermal printers, as raw ESC/POS bytes or as plain text.
+ *
+ * The layout follows the PDF receipt (shop header, bill number and date, item lines, totals) on a
+ * grid of {@link #getColumns} characters: 48 fits 80 mm paper in the printer's standard font, 32
+ * fits 58 mm. An item whose name does not fit beside its numbers gets a line of its own. Bytes are
+ * written straight into a ByteBuffer with no document model in between, so a receipt takes
+ * microseconds rather than the milliseconds iText needs.
+ *
+ * Printers have no rupee sign, so amounts read "Rs."; any other character outside ASCII prints as '?'.
+ */
+public final class EscPosReceiptRenderer implements ReceiptRenderer {
+
+    /** Characters per line, from the {@code billing.receipt.columns} system property. */
+    public static final int DEFAULT_COLUMNS = Integer.getInteger("billing.receipt.columns", 48);
+    private static final int MIN_COLUMNS = 32;
+
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final byte LF = '\n';
+
+    // The numeric item columns, each preceded by a space; the name gets the rest of the line.
+    private static final int MRP_WIDTH = 8;
+    private static final int QTY_WIDTH = 4;
+    private static final int TAX_WIDTH = 6;
+    private static final int AMOUNT_WIDTH = 10;
+    private static final int NUMBERS_WIDTH = MRP_WIDTH + QTY_WIDTH + TAX_WIDTH + AMOUNT_WIDTH + 4;
+    /** Below this, names always go on their own line rather than being squeezed beside the numbers. */
+    private static final int MIN_NAME_WIDTH = 12;
+    private static final int TOTAL_VALUE_WIDTH = 16;
+    /** At most this many idle buffers are kept; one per receipt rendering at once is plenty. */
+    private static final int MAX_POOLED_BUFFERS = 8;
+    /** Buffers grown past this for an unusually long bill are dropped rather than kept. */
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024;
+
+    private final int columns;
+    private final boolean controlCodes;
+    /**
+     * Idle output buffers, shared by every rendering thread, so writing a receipt allocates no
+     * output buffer once warmed up. A pool rather than a ThreadLocal, because receipt tasks may each
+     * run on a fresh virtual thread.
+     */
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    /**
+     * @param columns Characters per line, at least 32.
+     * @param controlCodes Whether to emit ESC/POS commands (initialize, bold, large title, feed and
+     *                     cut); without them the output is plain text.
+     */
+    public EscPosReceiptRenderer(int columns, boolean controlCodes) {
+        if (columns < MIN_COLUMNS) throw new IllegalArgumentException("Receipts need at least " + MIN_COLUMNS + " columns, not " + columns);
+        this.columns = columns;
+        this.controlCodes = controlCodes;
+    }
+
+    @Override public String getName() { return controlCodes ? "escpos" : "text"; }
+    @Override public String getFileExtension() { return controlCodes ? "prn" : "txt"; }
+    public int getColumns() { return columns; }
+
+    @Override
+    public void render(OutputStream out, long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) buffer = ByteBuffer.allocate(4096);
+        else pooledBuffers.decrementAndGet();
+        try (OutputStream stream = out) {
+            buffer.clear();
+            buffer = render(buffer, billId, billTime, billItems, subtotal, discountAmount, grandTotal);
+            stream.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private void release(ByteBuffer buffer) {
+        if (buffer.capacity() > MAX_POOLED_CAPACITY) return;
+        if (pooledBuffers.incrementAndGet() > MAX_POOLED_BUFFERS) {
+            pooledBuffers.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+
+    /**
+     * Lays out a receipt into a buffer, starting at its position.
+     *
+     * @return The buffer holding the receipt, positioned just after it: the one passed in, or a
+     *         larger heap buffer holding its earlier contents too if that was too small.
+     */
+    public ByteBuffer render(ByteBuffer buffer, long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) {
+        // Every item takes at most two lines; numbers wider than their column can push a line a little past the width.
+        int worstCase = (billItems.size() * 2 + 16) * (columns + 24) + 64;
+        if (buffer.remaining() < worstCase) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.position() + worstCase);
+            buffer.flip();
+            buffer = larger.put(buffer);
+        }
+
+        // --- Header ---
+        if (controlCodes) {
+            buffer.put(ESC).put((byte) '@');
+            // Bold, double width and height: the title has half as many columns to center in.
+            buffer.put(ESC).put((byte) 'E').put((byte) 1).put(GS).put((byte) '!').put((byte) 0x11);
+            centered(buffer, "TEAM 5", columns / 2);
+            buffer.put(GS).put((byte) '!').put((byte) 0).put(ESC).put((byte) 'E').put((byte) 0);
+        } else {
+            centered(buffer, "TEAM 5", columns);
+        }
+        centered(buffer, "Mavoor Road, Kozhikode, Kerala", columns);
+        rule(buffer);
+
+        // --- Bill Details (Bill No. and Date/Time in IST) ---
+        String billNumber = "Bill No: " + billId;
+        String date = "Date: " + DateTimes.formatForReceipt(billTime);
+        if (billNumber.length() + 1 + date.length() <= columns) {
+            justified(buffer, billNumber, date);
+        } else {
+            ascii(buffer, billNumber, columns);
+            buffer.put(LF);
+            ascii(buffer, date, columns);
+            buffer.put(LF);
+        }
+        rule(buffer);
+
+        // --- Items ---
+        int nameWidth = columns - NUMBERS_WIDTH;
+        boolean nameBeside = nameWidth >= MIN_NAME_WIDTH;
+        if (nameBeside) {
+            left(buffer, "Item", nameWidth);
+        } else {
+            ascii(buffer, "Item", columns);
+            buffer.put(LF);
+            pad(buffer, nameWidth);
+        }
+        numbers(buffer, "MRP", "Qty", "Tax", "Amount");
+        for (Map.Entry<Product, Integer> entry : billItems.entrySet()) {
+            Product product = entry.getKey();
+            int quantity = entry.getValue();
+            if (product == null) continue;
+            String name = product.getName();
+            if (nameBeside && name.length() <= nameWidth) {
+                left(buffer, name, nameWidth);
+            } else {
+                ascii(buffer, name, columns);
+                buffer.put(LF);
+                pad(buffer, nameWidth);
+            }
+            numbers(buffer, Money.format(product.getPricePaise()), String.valueOf(quantity), PdfGenerator.formatTaxSlab(product.getTaxSlab()), Money.format(product.getPricePaise() * quantity));
+        }
+        rule(buffer);
+
+        // --- Totals Section (Subtotal, Discount, Grand Total) ---
+        total(buffer, "Subtotal:", "Rs. " + Money.format(subtotal));
+        if (discountAmount > 0) total(buffer, "Discount:", "- Rs. " + Money.format(discountAmount));
+        if (controlCodes) buffer.put(ESC).put((byte) 'E').put((byte) 1).put(GS).put((byte) '!').put((byte) 0x01);
+        total(buffer, "Grand Total:", "Rs. " + Money.format(grandTotal));
+        if (controlCodes) {
+            buffer.put(GS).put((byte) '!').put((byte) 0).put(ESC).put((byte) 'E').put((byte) 0);
+            // Feed past the tear bar, then a partial cut.
+            buffer.put(ESC).put((byte) 'd').put((byte) 4);
+            buffer.put(GS).put((byte) 'V').put((byte) 66).put((byte) 0);
+        } else {
+            buffer.put(LF);
+        }
+        return buffer;
+    }
+
+    /**
+     * Strips the printer commands this renderer emits, for showing a stored receipt on screen.
+     */
+    public static String toPlainText(byte[] receipt) {
+        StringBuilder text = new StringBuilder(receipt.length);
+        for (int i = 0; i < receipt.length; i++) {
+            byte b = receipt[i];
+            if (b == ESC) {
+                // ESC @ takes no argument; ESC E and ESC d take one.
+                if (i + 1 < receipt.length && receipt[i + 1] != '@') i++;
+                i++;
+            } else if (b == GS) {
+                // GS ! takes one argument; GS V 66 takes two.
+                i += i + 1 < receipt.length && receipt[i + 1] == 'V' ? 3 : 2;
+            } else {
+                text.append((char) (b & 0xFF));
+            }
+        }
+        return text.toString();
+    }
+
+    private void rule(ByteBuffer buffer) {
+        for (int i = 0; i < columns; i++) buffer.put((byte) '-');
+        buffer.put(LF);
+    }
+
+    private void justified(ByteBuffer buffer, String left, String right) {
+        ascii(buffer, left, left.length());
+        pad(buffer, columns - left.length() - right.length());
+        ascii(buffer, right, right.length());
+        buffer.put(LF);
+    }
+
+    private void total(ByteBuffer buffer, String label, String value) {
+        right(buffer, label, columns - TOTAL_VALUE_WIDTH);
+        right(buffer, value, TOTAL_VALUE_WIDTH);
+        buffer.put(LF);
+    }
+
+    private static void numbers(ByteBuffer buffer, String mrp, String quantity, String tax, String amount) {
+        buffer.put((byte) ' ');
+        right(buffer, mrp, MRP_WIDTH);
+        buffer.put((byte) ' ');
+        right(buffer, quantity, QTY_WIDTH);
+        buffer.put((byte) ' ');
+        right(buffer, tax, TAX_WIDTH);
+        buffer.put((byte) ' ');
+        right(buffer, amount, AMOUNT_WIDTH);
+        buffer.put(LF);
+    }
+
+    private static void centered(ByteBuffer buffer, String text, int width) {
+        pad(buffer, (width - Math.min(text.length(), width)) / 2);
+        ascii(buffer, text, width);
+        buffer.put(LF);
+    }
+
+    /** Writes text cut to the width and padded out to it. */
+    private static void left(ByteBuffer buffer, String text, int width) {
+        pad(buffer, width - ascii(buffer, text, width));
+    }
+
+    /** Writes text right-aligned in the width; text wider than that is written whole. */
+    private static void right(ByteBuffer buffer, String text, int width) {
+        pad(buffer, width - text.length());
+        ascii(buffer, text, text.length());
+    }
+
+    private static void pad(ByteBuffer buffer, int count) {
+        for (int i = 0; i < count; i++) buffer.put((byte) ' ');
+    }
+
+    /**
+     * Writes up to {@code max} characters, one byte each.
+     * @return How many were written.
+     */
+    private static int ascii(ByteBuffer buffer, String text, int max) {
+        int length = Math.min(text.length(), max);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            buffer.put(c >= ' ' && c < 0x7F ? (byte) c : (byte) '?');
+        }
+        return length;
+    }
+}
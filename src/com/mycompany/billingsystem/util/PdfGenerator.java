@@ -1,83 +1,177 @@
 package com.mycompany.billingsystem.util;
 
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFontFactory;
 import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
 import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
 import com.itextpdf.layout.borders.Border;
 import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Image;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.property.TextAlignment;
 import com.itextpdf.layout.property.UnitValue;
+import com.mycompany.billingsystem.model.Money;
 import com.mycompany.billingsystem.model.Product;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Map;
-import java.util.TimeZone;
 
 /**
  * A utility class to generate PDF bills using the iText 7 library.
  * This class creates a detailed, formatted receipt for each transaction.
+ *
+ * Receipts keep no shared layout state, so they can be rendered on several threads at once; the
+ * {@link ReceiptService} stores them in the {@link ReceiptArchive}, and {@link #generateBillPdf}
+ * still writes a standalone file (see {@link ReceiptRenderer#writeToFile}).
+ *
+ * The parts that are the same on every receipt are prepared once: the font program is loaded a
+ * single time, the shop header is laid out once and stamped onto each receipt as a form XObject,
+ * and cell styles are shared. Only the bill details, the item lines and the totals are laid out
+ * per bill.
  */
 public class PdfGenerator {
 
-    private static final String BILLS_DIRECTORY = "bills";
+    /** iText's default page margin, which the header template is sized to fit inside. */
+    private static final float PAGE_MARGIN = 36;
+
+    /** Parsed once and shared; each document makes its own PdfFont from it. */
+    static final FontProgram REGULAR_FONT = loadFont(StandardFonts.HELVETICA);
+
+    // Styles are only read while laying out, so one instance serves every receipt on every thread.
+    private static final Style HEADER_CELL = new Style().setTextAlignment(TextAlignment.CENTER).setBorder(Border.NO_BORDER);
+    private static final Style ITEM_CELL = new Style().setBorder(Border.NO_BORDER).setPaddingTop(2).setPaddingBottom(2);
+    private static final Style DETAIL_CELL = new Style().setBorder(Border.NO_BORDER);
+    private static final Style TOTAL_CELL = new Style().setBorder(Border.NO_BORDER);
 
     /**
-     * Generates a PDF receipt for a finalized bill.
-     * This method is synchronized to prevent file access conflicts if called by multiple threads.
+     * The shop name, address and the rule under them, laid out once into a one-page PDF exactly the
+     * header's size. Each receipt copies that page in as a form XObject.
+     */
+    private static final class HeaderTemplate {
+        private static final PdfDocument SOURCE = build();
+
+        /**
+         * @return The header as a form XObject belonging to the target document.
+         */
+        static synchronized PdfFormXObject copyTo(PdfDocument target) throws IOException {
+            // The source is read lazily through a single PdfReader, so copies are serialized; each takes microseconds.
+            return SOURCE.getFirstPage().copyAsFormXObject(target);
+        }
+
+        private static PdfDocument build() {
+            try {
+                float width = PageSize.A5.getWidth() - 2 * PAGE_MARGIN;
+                // Lay out once on a full-height page to measure, then again on a page that fits, so the form's origin is (0, 0).
+                float height = PageSize.A5.getHeight() - layOut(new ByteArrayOutputStream(), width, PageSize.A5.getHeight());
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                layOut(bytes, width, height);
+                return new PdfDocument(new PdfReader(new ByteArrayInputStream(bytes.toByteArray())));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not prepare the receipt header", e);
+            }
+        }
+
+        /**
+         * @return The space left below the header on the page.
+         */
+        private static float layOut(OutputStream out, float width, float height) throws IOException {
+            try (PdfDocument pdf = new PdfDocument(new PdfWriter(out));
+                 Document document = new Document(pdf, new PageSize(width, height))) {
+                document.setMargins(0, 0, 0, 0);
+                document.setFont(PdfFontFactory.createFont(REGULAR_FONT, PdfEncodings.WINANSI));
+                document.add(new Paragraph("TEAM 5")
+                    .setTextAlignment(TextAlignment.CENTER)
+                    .setBold()
+                    .setFontSize(20)
+                    .setMarginBottom(5));
+                document.add(new Paragraph("Mavoor Road, Kozhikode, Kerala")
+                    .setTextAlignment(TextAlignment.CENTER)
+                    .setFontSize(10));
+                document.add(createSeparator());
+                return document.getRenderer().getCurrentArea().getBBox().getHeight();
+            }
+        }
+    }
+
+    private static FontProgram loadFont(String name) {
+        try {
+            return FontProgramFactory.createFont(name);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load font " + name, e);
+        }
+    }
+
+    /**
+     * Generates a PDF receipt for a finalized bill, dated now.
      *
      * @param billId The unique ID for the bill.
      * @param billItems A map containing the products and quantities sold.
-     * @param subtotal The total amount before discounts.
-     * @param discountAmount The calculated discount amount.
-     * @param grandTotal The final amount after discounts.
+     * @param subtotal The total amount before discounts, in paise.
+     * @param discountAmount The calculated discount amount, in paise.
+     * @param grandTotal The final amount after discounts, in paise.
      * @return The file path of the generated PDF, or null if an error occurred.
      */
-    public static synchronized String generateBillPdf(long billId, Map<Product, Integer> billItems, double subtotal, double discountAmount, double grandTotal) {
+    public static String generateBillPdf(long billId, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) {
         if (billItems == null || billItems.isEmpty()) {
             System.err.println("Cannot generate PDF for an empty bill.");
             return null;
         }
-
         try {
-            File dir = new File(BILLS_DIRECTORY);
-            if (!dir.exists()) {
-                dir.mkdirs();
-            }
-        } catch (SecurityException se) {
-            System.err.println("Security Exception: Failed to create '" + BILLS_DIRECTORY + "' directory. Check folder permissions.");
-            se.printStackTrace();
+            return writeBillPdf(billId, System.currentTimeMillis(), billItems, subtotal, discountAmount, grandTotal).toString();
+        } catch (IOException e) {
+            System.err.println("Error generating PDF. Check iText libraries and file permissions.");
+            e.printStackTrace();
+            return null;
+        } catch (Exception e) {
+            System.err.println("An unexpected error occurred during PDF generation: " + e.getMessage());
+            e.printStackTrace();
             return null;
         }
+    }
 
-        String filePath = BILLS_DIRECTORY + File.separator + "Bill_" + billId + ".pdf";
+    /**
+     * Writes a bill's PDF receipt, replacing any earlier one for the same bill.
+     *
+     * @param billTime When the bill was created, in epoch milliseconds; printed as the receipt date.
+     * @return The path of the finished PDF.
+     * @throws IOException If the bills directory or the file cannot be written.
+     */
+    public static Path writeBillPdf(long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException {
+        Path target = PdfReceiptRenderer.INSTANCE.writeToFile(billId, billTime, billItems, subtotal, discountAmount, grandTotal);
+        System.out.println("PDF generated successfully at: " + target);
+        return target;
+    }
 
-        try (PdfWriter writer = new PdfWriter(filePath);
+    /**
+     * Lays out a bill's receipt into a stream, which is closed afterwards.
+     *
+     * @param billTime When the bill was created, in epoch milliseconds; printed as the receipt date.
+     */
+    public static void writeReceipt(OutputStream out, long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException {
+        try (PdfWriter writer = new PdfWriter(out);
              PdfDocument pdf = new PdfDocument(writer);
              Document document = new Document(pdf, PageSize.A5)) {
+            document.setFont(PdfFontFactory.createFont(REGULAR_FONT, PdfEncodings.WINANSI));
 
-            // --- Header ---
-            document.add(new Paragraph("TEAM 5")
-                .setTextAlignment(TextAlignment.CENTER)
-                .setBold()
-                .setFontSize(20)
-                .setMarginBottom(5));
-            
-            document.add(new Paragraph("Mavoor Road, Kozhikode, Kerala")
-                .setTextAlignment(TextAlignment.CENTER)
-                .setFontSize(10));
-
-            document.add(createSeparator());
+            // --- Header (pre-rendered) ---
+            document.add(new Image(HeaderTemplate.copyTo(pdf)));
 
             // --- Bill Details (Bill No. and Date/Time in IST) ---
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy hh:mm:ss a");
-            dateFormat.setTimeZone(TimeZone.getTimeZone("Asia/Kolkata"));
-            String formattedDate = dateFormat.format(new Date());
+            String formattedDate = DateTimes.formatForReceipt(billTime);
 
             Table detailsTable = new Table(UnitValue.createPercentArray(new float[]{1, 1}));
             detailsTable.setWidth(UnitValue.createPercentValue(100));
@@ -104,10 +198,10 @@ public class PdfGenerator {
                 if (product == null) continue; // Safety check
 
                 itemsTable.addCell(createItemCell(product.getName(), TextAlignment.LEFT));
-                itemsTable.addCell(createItemCell(String.format("₹%.2f", product.getPrice()), TextAlignment.RIGHT));
+                itemsTable.addCell(createItemCell("₹" + Money.format(product.getPricePaise()), TextAlignment.RIGHT));
                 itemsTable.addCell(createItemCell(String.valueOf(quantity), TextAlignment.CENTER));
-                itemsTable.addCell(createItemCell(String.format("%.1f%%", product.getTaxSlab()), TextAlignment.RIGHT));
-                itemsTable.addCell(createItemCell(String.format("₹%.2f", product.getPrice() * quantity), TextAlignment.RIGHT));
+                itemsTable.addCell(createItemCell(formatTaxSlab(product.getTaxSlab()), TextAlignment.RIGHT));
+                itemsTable.addCell(createItemCell("₹" + Money.format(product.getPricePaise() * quantity), TextAlignment.RIGHT));
             }
             document.add(itemsTable);
             document.add(createSeparator());
@@ -117,51 +211,44 @@ public class PdfGenerator {
             totalsTable.setWidth(UnitValue.createPercentValue(100));
             
             totalsTable.addCell(createTotalCell("Subtotal:", TextAlignment.RIGHT));
-            totalsTable.addCell(createTotalCell(String.format("₹ %.2f", subtotal), TextAlignment.RIGHT));
+            totalsTable.addCell(createTotalCell("₹ " + Money.format(subtotal), TextAlignment.RIGHT));
 
             if (discountAmount > 0) {
                 totalsTable.addCell(createTotalCell("Discount:", TextAlignment.RIGHT));
-                totalsTable.addCell(createTotalCell(String.format("- ₹ %.2f", discountAmount), TextAlignment.RIGHT));
+                totalsTable.addCell(createTotalCell("- ₹ " + Money.format(discountAmount), TextAlignment.RIGHT));
             }
 
             totalsTable.addCell(createTotalCell("Grand Total:", TextAlignment.RIGHT).setBold().setFontSize(14));
-            totalsTable.addCell(createTotalCell(String.format("₹ %.2f", grandTotal), TextAlignment.RIGHT).setBold().setFontSize(14));
+            totalsTable.addCell(createTotalCell("₹ " + Money.format(grandTotal), TextAlignment.RIGHT).setBold().setFontSize(14));
             
             document.add(totalsTable);
-
-            document.close();
-            System.out.println("PDF generated successfully at: " + filePath);
-            return filePath;
-
-        } catch (IOException e) {
-            System.err.println("Error generating PDF. Check iText libraries and file permissions.");
-            e.printStackTrace();
-            return null;
-        } catch (Exception e) {
-            System.err.println("An unexpected error occurred during PDF generation: " + e.getMessage());
-            e.printStackTrace();
-            return null;
         }
     }
 
+    /** Formats a tax slab to one decimal place, as "%.1f%%" would, without a Formatter per cell. */
+    static String formatTaxSlab(double taxSlab) {
+        long tenths = Math.round(taxSlab * 10);
+        return (tenths / 10) + "." + Math.abs(tenths % 10) + "%";
+    }
+
     private static Paragraph createSeparator() {
         return new Paragraph("--------------------------------------------------").setTextAlignment(TextAlignment.CENTER).setMarginTop(5).setMarginBottom(5);
     }
     
     private static Cell createHeaderCell(String text) {
-        return new Cell().add(new Paragraph(text).setBold()).setTextAlignment(TextAlignment.CENTER).setBorder(Border.NO_BORDER);
+        return new Cell().add(new Paragraph(text).setBold()).addStyle(HEADER_CELL);
     }
 
     private static Cell createItemCell(String text, TextAlignment alignment) {
-        return new Cell().add(new Paragraph(text)).setTextAlignment(alignment).setBorder(Border.NO_BORDER).setPaddingTop(2).setPaddingBottom(2);
+        return new Cell().add(new Paragraph(text)).addStyle(ITEM_CELL).setTextAlignment(alignment);
     }
     
     private static Cell createDetailCell(String text, TextAlignment alignment) {
-        return new Cell().add(new Paragraph(text).setFontSize(9)).setBorder(Border.NO_BORDER).setTextAlignment(alignment);
+        return new Cell().add(new Paragraph(text).setFontSize(9)).addStyle(DETAIL_CELL).setTextAlignment(alignment);
     }
 
     private static Cell createTotalCell(String text, TextAlignment alignment) {
-        return new Cell().add(new Paragraph(text)).setBorder(Border.NO_BORDER).setTextAlignment(alignment);
+        return new Cell().add(new Paragraph(text)).addStyle(TOTAL_CELL).setTextAlignment(alignment);
     }
 }
 
@@ -0,0 +1,25 @@
+package com.mycompany.billingsystem.util;
+
+import com.mycompany.billingsystem.model.Product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * A5 PDF receipts, laid out by {@link PdfGenerator}.
+ */
+public final class PdfReceiptRenderer implements ReceiptRenderer {
+
+    public static final PdfReceiptRenderer INSTANCE = new PdfReceiptRenderer();
+
+    private PdfReceiptRenderer() {}
+
+    @Override public String getName() { return "pdf"; }
+    @Override public String getFileExtension() { return "pdf"; }
+
+    @Override
+    public void render(OutputStream out, long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException {
+        PdfGenerator.writeReceipt(out, billId, billTime, billItems, subtotal, discountAmount, grandTotal);
+    }
+}
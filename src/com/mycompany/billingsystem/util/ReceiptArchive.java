@@ -0,0 +1,456 @@
+package com.mycompany.billingsystem.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores every bill's receipt in a few large append-only files instead of one file per bill.
+ *
+ * Receipts are sharded by month into {@code receipts/<yyyy-MM>/}, and within a month appended to
+ * numbered segment files that roll over at {@link #SEGMENT_BYTES}. Each record carries its bill
+ * id, bill time, format and a CRC32 of its bytes, and is deflated when that makes it smaller
+ * (set {@code billing.receipt.compress=false} to store receipts as they are). Beside each segment
+ * an index file lists (bill id, offset) pairs; these are read into an in-memory map at startup, so
+ * fetching any bill's receipt is one map lookup and one positioned read. Storing a bill again
+ * appends a new record that replaces the old one in the index.
+ *
+ * At startup each segment is scanned past its last indexed record, so a record whose index entry
+ * was lost in a crash, or a segment whose index file is missing, is indexed again. Records the
+ * index points past the end of a segment, or whose CRC does not match, are treated as absent.
+ */
+public final class ReceiptArchive {
+
+    /** A receipt read back from the archive. */
+    public static final class Receipt {
+        public final long billId;
+        public final long billTime;
+        /** The renderer's file extension, e.g. "pdf" or "txt". */
+        public final String format;
+        public final byte[] data;
+
+        Receipt(long billId, long billTime, String format, byte[] data) {
+            this.billId = billId;
+            this.billTime = billTime;
+            this.format = format;
+            this.data = data;
+        }
+    }
+
+    /** Segments roll over once they pass this size. */
+    static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final Path ROOT = Paths.get(System.getProperty("billing.receipt.archiveDir", "receipts"));
+    private static final boolean COMPRESS = Boolean.parseBoolean(System.getProperty("billing.receipt.compress", "true"));
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM").withZone(DateTimes.RECEIPT_ZONE);
+
+    private static final int MAGIC = 0x52435054; // "RCPT"
+    private static final byte FLAG_DEFLATED = 1;
+    /** magic, bill id, bill time, flags, format length; then the format, raw length, stored length and CRC. */
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 1 + 1;
+    private static final int TRAILER_BYTES = 4 + 4 + 4;
+    private static final int INDEX_ENTRY_BYTES = 16;
+
+    /** One segment file and its index. Reads use positioned I/O on a shared channel, which is safe across threads. */
+    private static final class Segment {
+        final Path data;
+        final Path index;
+        long size;
+        FileChannel channel;
+        FileChannel indexChannel;
+
+        Segment(Path data) {
+            this.data = data;
+            this.index = data.resolveSibling(data.getFileName().toString().replace(".seg", ".idx"));
+        }
+
+        synchronized FileChannel channel() throws IOException {
+            if (channel == null) channel = FileChannel.open(data, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return channel;
+        }
+
+        synchronized FileChannel indexChannel() throws IOException {
+            if (indexChannel == null) indexChannel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return indexChannel;
+        }
+
+        synchronized void close() throws IOException {
+            if (channel != null) channel.close();
+            if (indexChannel != null) indexChannel.close();
+            channel = null;
+            indexChannel = null;
+        }
+    }
+
+    /**
+     * Bill id to location, packed as (segment number << 48 | offset), in open addressing so a
+     * million receipts cost tens of megabytes rather than hundreds in boxed map entries.
+     */
+    private static final class LocationIndex {
+        private static final long EMPTY = Long.MIN_VALUE;
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        LocationIndex() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+                if (keys[i] == EMPTY) return -1;
+            }
+        }
+
+        void put(long key, long value) {
+            if (size * 3 >= keys.length * 2) grow();
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == EMPTY) {
+                    keys[i] = key;
+                    values[i] = value;
+                    size++;
+                    return;
+                }
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static final Object lock = new Object();
+    private static final List<Segment> segments = new ArrayList<>();
+    /** The segment currently appended to, per month. */
+    private static final Map<String, Integer> currentSegments = new HashMap<>();
+    private static LocationIndex locations = new LocationIndex();
+    private static boolean loaded = false;
+
+    private ReceiptArchive() {}
+
+    /**
+     * Reads the index files of every segment. Called on first use; calling it early just moves that cost off the first receipt.
+     */
+    public static void load() {
+        synchronized (lock) {
+            if (loaded) return;
+            long start = System.nanoTime();
+            long bytes = 0;
+            try {
+                Files.createDirectories(ROOT);
+                for (Path month : sorted(ROOT, "[0-9][0-9][0-9][0-9]-[0-9][0-9]")) {
+                    for (Path data : sorted(month, "*.seg")) {
+                        Segment segment = new Segment(data);
+                        segment.size = Files.size(data);
+                        int number = segments.size();
+                        segments.add(segment);
+                        currentSegments.put(month.getFileName().toString(), number);
+                        recoverUnindexed(segment, number, readIndex(segment, number));
+                        bytes += segment.size;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading receipt archive: " + e.getMessage());
+            }
+            loaded = true;
+            System.out.printf("Receipt archive loaded: %d receipts in %d segments (%.1f MB) in %.1f ms%n",
+                    locations.size(), segments.size(), bytes / 1048576.0, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    private static List<Path> sorted(Path dir, String glob) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            for (Path path : stream) paths.add(path);
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    /**
+     * Loads a segment's index entries.
+     * @return The end of the last record the index points to, or 0 if it points to none.
+     */
+    private static long readIndex(Segment segment, int number) throws IOException {
+        if (!Files.exists(segment.index)) return 0;
+        byte[] entries = Files.readAllBytes(segment.index);
+        if (entries.length % INDEX_ENTRY_BYTES != 0) {
+            // A torn final entry from a crash; cut it off so later entries are appended in step.
+            try (FileChannel index = FileChannel.open(segment.index, StandardOpenOption.WRITE)) {
+                index.truncate(entries.length - entries.length % INDEX_ENTRY_BYTES);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(entries);
+        long lastOffset = -1;
+        while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+            long billId = buffer.getLong();
+            long offset = buffer.getLong();
+            if (offset >= segment.size) continue;
+            locations.put(billId, pack(number, offset));
+            lastOffset = Math.max(lastOffset, offset);
+        }
+        if (lastOffset < 0) return 0;
+        FileChannel channel = segment.channel();
+        // If the newest indexed record is itself damaged, what follows it cannot be trusted either.
+        return readRecord(channel, lastOffset) == null ? -1 : lastOffset + recordLength(channel, lastOffset);
+    }
+
+    /**
+     * Indexes the records after the last indexed one. A crash between writing a record and its
+     * index entry leaves such a record, and a segment whose index file is missing has nothing but.
+     * Scanning stops at the first damaged record; the rest of the file is cut off there, as it can
+     * only be a record torn by the crash, so that later records are appended where they can be found.
+     */
+    private static void recoverUnindexed(Segment segment, int number, long offset) throws IOException {
+        if (offset < 0) {
+            System.err.println("Receipt segment " + segment.data + " is damaged at its last indexed record; not scanning past it.");
+            return;
+        }
+        if (offset >= segment.size) return;
+        FileChannel channel = segment.channel();
+        FileChannel index = segment.indexChannel();
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        int recovered = 0;
+        while (offset < segment.size) {
+            Receipt receipt = readRecord(channel, offset);
+            if (receipt == null) break;
+            entry.clear();
+            entry.putLong(receipt.billId).putLong(offset).flip();
+            while (entry.hasRemaining()) index.write(entry);
+            locations.put(receipt.billId, pack(number, offset));
+            offset += recordLength(channel, offset);
+            recovered++;
+        }
+        if (offset < segment.size) {
+            System.err.println("Discarding " + (segment.size - offset) + " bytes of torn receipt data at the end of " + segment.data);
+            channel.truncate(offset);
+            segment.size = offset;
+        }
+        if (recovered > 0) System.out.println("Indexed " + recovered + " receipts missing from " + segment.index);
+    }
+
+    /**
+     * Stores a bill's receipt, replacing any stored before.
+     *
+     * @param format The renderer's file extension, e.g. "pdf".
+     */
+    public static void store(long billId, long billTime, String format, byte[] data) throws IOException {
+        byte[] formatBytes = format.getBytes(StandardCharsets.US_ASCII);
+        byte flags = 0;
+        byte[] stored = data;
+        if (COMPRESS) {
+            byte[] deflated = deflate(data);
+            if (deflated.length < data.length) {
+                stored = deflated;
+                flags = FLAG_DEFLATED;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + formatBytes.length + TRAILER_BYTES + stored.length);
+        record.putInt(MAGIC).putLong(billId).putLong(billTime).put(flags).put((byte) formatBytes.length).put(formatBytes);
+        record.putInt(data.length).putInt(stored.length).putInt((int) crc.getValue()).put(stored);
+        record.flip();
+
+        load();
+        synchronized (lock) {
+            int number = segmentFor(MONTH.format(Instant.ofEpochMilli(billTime)), record.remaining());
+            Segment segment = segments.get(number);
+            long offset = segment.size;
+            FileChannel channel = segment.channel();
+            for (long position = offset; record.hasRemaining(); ) position += channel.write(record, position);
+            segment.size += record.limit();
+            // The data goes first, so the index never points at a record that was not written.
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).putLong(billId).putLong(offset);
+            entry.flip();
+            FileChannel index = segment.indexChannel();
+            while (entry.hasRemaining()) index.write(entry);
+            locations.put(billId, pack(number, offset));
+        }
+    }
+
+    /** Picks the segment to append a record to, starting a new one when the month's current segment is full. Caller holds the lock. */
+    private static int segmentFor(String month, int recordBytes) throws IOException {
+        Integer current = currentSegments.get(month);
+        if (current != null && segments.get(current).size + recordBytes <= SEGMENT_BYTES) return current;
+        int sequence = current == null ? 1 : Integer.parseInt(segments.get(current).data.getFileName().toString().replace(".seg", "")) + 1;
+        Path dir = Files.createDirectories(ROOT.resolve(month));
+        Segment segment = new Segment(dir.resolve(String.format("%06d.seg", sequence)));
+        segment.size = Files.exists(segment.data) ? Files.size(segment.data) : 0;
+        segments.add(segment);
+        currentSegments.put(month, segments.size() - 1);
+        return segments.size() - 1;
+    }
+
+    /**
+     * @return The bill's receipt, or null if none is archived or the stored copy is damaged.
+     */
+    public static Receipt read(long billId) {
+        load();
+        Segment segment;
+        long offset;
+        synchronized (lock) {
+            long location = locations.get(billId);
+            if (location < 0) return null;
+            segment = segments.get((int) (location >>> 48));
+            offset = location & 0xFFFF_FFFF_FFFFL;
+        }
+        try {
+            Receipt receipt = readRecord(segment.channel(), offset);
+            if (receipt == null || receipt.billId != billId) {
+                System.err.println("Archived receipt for bill " + billId + " is damaged.");
+                return null;
+            }
+            return receipt;
+        } catch (IOException e) {
+            System.err.println("Error reading archived receipt for bill " + billId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static boolean contains(long billId) {
+        load();
+        synchronized (lock) {
+            return locations.get(billId) >= 0;
+        }
+    }
+
+    /**
+     * @return The record at an offset, or null if it is truncated or fails its CRC.
+     */
+    private static Receipt readRecord(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 255 + TRAILER_BYTES);
+        readFully(channel, header, offset);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) return null;
+        long billId = header.getLong();
+        long billTime = header.getLong();
+        byte flags = header.get();
+        int formatLength = header.get() & 0xFF;
+        if (header.remaining() < formatLength + TRAILER_BYTES) return null;
+        byte[] format = new byte[formatLength];
+        header.get(format);
+        int rawLength = header.getInt();
+        int storedLength = header.getInt();
+        int expectedCrc = header.getInt();
+        if (storedLength < 0 || rawLength < 0) return null;
+
+        ByteBuffer stored = ByteBuffer.allocate(storedLength);
+        readFully(channel, stored, offset + HEADER_BYTES + formatLength + TRAILER_BYTES);
+        if (stored.hasRemaining()) return null;
+        CRC32 crc = new CRC32();
+        crc.update(stored.array());
+        if ((int) crc.getValue() != expectedCrc) return null;
+        byte[] data = (flags & FLAG_DEFLATED) != 0 ? inflate(stored.array(), rawLength) : stored.array();
+        if (data == null) return null;
+        return new Receipt(billId, billTime, new String(format, StandardCharsets.US_ASCII), data);
+    }
+
+    private static long recordLength(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 255 + TRAILER_BYTES);
+        readFully(channel, header, offset);
+        int formatLength = header.get(HEADER_BYTES - 1) & 0xFF;
+        int storedLength = header.getInt(HEADER_BYTES + formatLength + 4);
+        return HEADER_BYTES + formatLength + TRAILER_BYTES + storedLength;
+    }
+
+    /** Reads until the buffer is full or the file ends. */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) return;
+            position += read;
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) out.write(chunk, 0, deflater.deflate(chunk));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] data = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(data, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += n;
+            }
+            return length == rawLength ? data : null;
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long pack(int segment, long offset) {
+        return (long) segment << 48 | offset;
+    }
+
+    /**
+     * Closes the open segment files. Stores and reads after this reopen them.
+     */
+    public static void shutdown() {
+        synchronized (lock) {
+            for (Segment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing receipt segment " + segment.data + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mycompany.billingsystem.util;
+
+import com.mycompany.billingsystem.model.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Lays out a saved bill as a receipt in one output format.
+ *
+ * Each till picks its renderer with the {@code billing.receipt.renderer} system property; see
+ * {@link #fromName}. Implementations keep no per-receipt state, so one instance serves every
+ * rendering thread.
+ */
+public interface ReceiptRenderer {
+
+    /** Where receipt files are written, relative to the working directory. */
+    String BILLS_DIRECTORY = "bills";
+
+    /**
+     * @return The short name used to select this renderer and in logs.
+     */
+    String getName();
+
+    /**
+     * @return The extension of the files this renderer writes, without the dot.
+     */
+    String getFileExtension();
+
+    /**
+     * Lays out a bill's receipt into a stream, which is closed afterwards.
+     *
+     * @param billTime When the bill was created, in epoch milliseconds; printed as the receipt date.
+     */
+    void render(OutputStream out, long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException;
+
+    /**
+     * Lays out a bill's receipt in memory, for the {@link ReceiptArchive}.
+     *
+     * @return The receipt's bytes.
+     */
+    default byte[] renderToBytes(long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException {
+        if (billItems == null || billItems.isEmpty()) throw new IllegalArgumentException("Cannot generate a receipt for an empty bill.");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        render(out, billId, billTime, billItems, subtotal, discountAmount, grandTotal);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a bill's receipt to {@code bills/Bill_<id>.<extension>}, replacing any earlier one.
+     * The file is written under a temporary name and moved into place when complete, so a
+     * half-written receipt is never seen under the bill's name and bills can be written in parallel.
+     *
+     * @return The path of the finished receipt.
+     * @throws IOException If the bills directory or the file cannot be written.
+     */
+    default Path writeToFile(long billId, long billTime, Map<Product, Integer> billItems, long subtotal, long discountAmount, long grandTotal) throws IOException {
+        if (billItems == null || billItems.isEmpty()) throw new IllegalArgumentException("Cannot generate a receipt for an empty bill.");
+        Path dir = Files.createDirectories(Paths.get(BILLS_DIRECTORY));
+        Path target = dir.resolve("Bill_" + billId + "." + getFileExtension());
+        Path temp = Files.createTempFile(dir, "Bill_" + billId + "-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                render(out, billId, billTime, billItems, subtotal, discountAmount, grandTotal);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target;
+    }
+
+    /**
+     * Resolves a renderer by name, falling back to PDF for unknown values.
+     *
+     * @param name "pdf" for A5 PDF receipts, "escpos" for thermal printers (raw ESC/POS bytes), or
+     *             "text" for the same fixed-width layout as plain text (case-insensitive). The thermal
+     *             layouts are {@code billing.receipt.columns} characters wide, 48 by default (80 mm paper).
+     * @return The matching renderer.
+     */
+    static ReceiptRenderer fromName(String name) {
+        String key = name == null ? "" : name.trim().toLowerCase();
+        switch (key) {
+            case "escpos": return new EscPosReceiptRenderer(EscPosReceiptRenderer.DEFAULT_COLUMNS, true);
+            case "text": return new EscPosReceiptRenderer(EscPosReceiptRenderer.DEFAULT_COLUMNS, false);
+            case "pdf": return PdfReceiptRenderer.INSTANCE;
+            default:
+                System.err.println("Unknown receipt renderer '" + name + "', using 'pdf'.");
+                return PdfReceiptRenderer.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.mycompany.billingsystem.util;
+
+import com.mycompany.billingsystem.db.DatabaseManager;
+import com.mycompany.billingsystem.model.Product;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders receipts for saved bills, away from the checkout path.
+ *
+ * The format comes from the {@code billing.receipt.renderer} system property: A5 PDF by default,
+ * or ESC/POS bytes or plain text for thermal printers (see {@link ReceiptRenderer#fromName}).
+ *
+ * Receipts are queued on the scheduler's {@link TaskScheduler.Lane#RECEIPT} lane, whose small
+ * worker pool and bounded queue keep a rush of sales from turning into unbounded PDF work; when
+ * the queue is full the receipt is refused rather than held. Receipts are laid out in memory in
+ * parallel and then appended to the {@link ReceiptArchive}, which only serializes the short write.
+ * A render that fails is tried again after a growing delay, up to {@link #MAX_ATTEMPTS} times in
+ * all. The caller learns the outcome from the returned future; counts and render times are kept
+ * for {@link #getStats}.
+ *
+ * With {@code billing.receipt.store=lazy} nothing is rendered at checkout. A receipt is laid out
+ * from the saved bill when someone asks for it (see {@link #findReceipt}), and recently viewed
+ * receipts are kept in a cache of at most {@code billing.receipt.cacheBytes} bytes, 32 MB by
+ * default. {@link #rebuild} renders a whole date range into the archive in parallel.
+ */
+public final class ReceiptService {
+
+    static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 250;
+    private static final String[] LEGACY_FORMATS = {"pdf", "prn", "txt"};
+    private static final ReceiptRenderer RENDERER = ReceiptRenderer.fromName(System.getProperty("billing.receipt.renderer", "pdf"));
+    private static final boolean LAZY = "lazy".equalsIgnoreCase(System.getProperty("billing.receipt.store", "archive"));
+    private static final long CACHE_BYTES = Long.getLong("billing.receipt.cacheBytes", 32L * 1024 * 1024);
+    /** Bills read and rendered per page of a rebuild, and how many of them may be queued at once. */
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final int REBUILD_IN_FLIGHT = 256;
+
+    /**
+     * A point-in-time view of the service's counters.
+     */
+    public static final class Stats {
+        public final long submitted;
+        public final long rendered;
+        public final long retried;
+        public final long failed;
+        public final long rejected;
+        public final int pending;
+        public final double avgRenderMillis;
+        public final double maxRenderMillis;
+
+        private Stats() {
+            submitted = ReceiptService.submitted.get();
+            rendered = ReceiptService.rendered.get();
+            retried = ReceiptService.retried.get();
+            failed = ReceiptService.failed.get();
+            rejected = ReceiptService.rejected.get();
+            pending = ReceiptService.pending.get();
+            avgRenderMillis = totalRenderNanos.get() / 1e6 / Math.max(1, rendered);
+            maxRenderMillis = maxRenderNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("submitted=%d rendered=%d retried=%d failed=%d rejected=%d pending=%d render avg=%.1fms max=%.1fms",
+                    submitted, rendered, retried, failed, rejected, pending, avgRenderMillis, maxRenderMillis);
+        }
+    }
+
+    /**
+     * What a {@link #rebuild} did.
+     */
+    public static final class RebuildResult {
+        public final int rendered;
+        /** Bills with no items, which have no receipt to render. */
+        public final int skipped;
+        public final int failed;
+        public final long elapsedMillis;
+
+        RebuildResult(int rendered, int skipped, int failed, long elapsedMillis) {
+            this.rendered = rendered;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rendered=%d skipped=%d failed=%d in %d ms", rendered, skipped, failed, elapsedMillis);
+        }
+    }
+
+    /**
+     * Recently viewed receipts, least recently used evicted first once their bytes pass the limit.
+     */
+    private static final class ReceiptCache {
+        private final long maxBytes;
+        private final LinkedHashMap<Long, ReceiptArchive.Receipt> receipts = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes = 0;
+
+        ReceiptCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized ReceiptArchive.Receipt get(long billId) {
+            return receipts.get(billId);
+        }
+
+        synchronized void put(ReceiptArchive.Receipt receipt) {
+            if (receipt.data.length > maxBytes) return;
+            ReceiptArchive.Receipt old = receipts.put(receipt.billId, receipt);
+            if (old != null) bytes -= old.data.length;
+            bytes += receipt.data.length;
+            for (Iterator<ReceiptArchive.Receipt> eldest = receipts.values().iterator(); bytes > maxBytes && eldest.hasNext(); ) {
+                bytes -= eldest.next().data.length;
+                eldest.remove();
+            }
+        }
+
+        synchronized void remove(long billId) {
+            ReceiptArchive.Receipt old = receipts.remove(billId);
+            if (old != null) bytes -= old.data.length;
+        }
+    }
+
+    private static final class Job {
+        final long billId;
+        final long billTime;
+        final Map<Product, Integer> items;
+        final long subtotal;
+        final long discountAmount;
+        final long grandTotal;
+        final CompletableFuture<ReceiptArchive.Receipt> result = new CompletableFuture<>();
+
+        Job(long billId, long billTime, Map<Product, Integer> items, long subtotal, long discountAmount, long grandTotal) {
+            this.billId = billId;
+            this.billTime = billTime;
+            this.items = items;
+            this.subtotal = subtotal;
+            this.discountAmount = discountAmount;
+            this.grandTotal = grandTotal;
+        }
+    }
+
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final AtomicLong rendered = new AtomicLong();
+    private static final AtomicLong retried = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong totalRenderNanos = new AtomicLong();
+    private static final AtomicLong maxRenderNanos = new AtomicLong();
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final ReceiptCache cache = new ReceiptCache(CACHE_BYTES);
+
+    private ReceiptService() {}
+
+    /**
+     * Queues the receipt for a saved bill.
+     *
+     * @param billTime When the bill was created, in epoch milliseconds.
+     * @param items The bill's products and quantities; copied, so the caller may reuse the map.
+     * @return A future completed with the archived receipt, or exceptionally once every attempt has
+     *         failed or with a RejectedExecutionException if the receipt queue is full. In lazy mode
+     *         it is already completed with null, as the receipt will be rendered when it is viewed.
+     */
+    public static CompletableFuture<ReceiptArchive.Receipt> submit(long billId, long billTime, Map<Product, Integer> items, long subtotal, long discountAmount, long grandTotal) {
+        if (LAZY) return CompletableFuture.completedFuture(null);
+        Job job = new Job(billId, billTime, new LinkedHashMap<>(items), subtotal, discountAmount, grandTotal);
+        submitted.incrementAndGet();
+        pending.incrementAndGet();
+        job.result.whenComplete((receipt, error) -> {
+            if (pending.decrementAndGet() == 0) {
+                synchronized (pending) {
+                    pending.notifyAll();
+                }
+            }
+        });
+        attempt(job, 1);
+        return job.result;
+    }
+
+    private static void attempt(Job job, int attempt) {
+        TaskScheduler.submit(TaskScheduler.Lane.RECEIPT, () -> render(job)).whenComplete((receipt, error) -> {
+            if (error == null) {
+                job.result.complete(receipt);
+            } else if (error instanceof RejectedExecutionException) {
+                rejected.incrementAndGet();
+                System.err.println("Receipt for bill " + job.billId + " was not queued: " + error.getMessage());
+                job.result.completeExceptionally(error);
+            } else if (attempt < MAX_ATTEMPTS && isRetryable(error)) {
+                retried.incrementAndGet();
+                System.err.println("Receipt for bill " + job.billId + " failed (attempt " + attempt + " of " + MAX_ATTEMPTS + "), retrying: " + error);
+                long delay = RETRY_DELAY_MILLIS << (attempt - 1);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> attempt(job, attempt + 1));
+            } else {
+                failed.incrementAndGet();
+                System.err.println("Receipt for bill " + job.billId + " could not be generated: " + error);
+                job.result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /** I/O trouble such as a full disk or a locked file may clear up; a bad bill or a missing library will not. */
+    private static boolean isRetryable(Throwable error) {
+        return error instanceof Exception && !(error instanceof IllegalArgumentException) && !TaskScheduler.isCancellation(error);
+    }
+
+    private static ReceiptArchive.Receipt render(Job job) throws Exception {
+        long start = System.nanoTime();
+        byte[] data = RENDERER.renderToBytes(job.billId, job.billTime, job.items, job.subtotal, job.discountAmount, job.grandTotal);
+        ReceiptArchive.store(job.billId, job.billTime, RENDERER.getFileExtension(), data);
+        long elapsed = System.nanoTime() - start;
+        rendered.incrementAndGet();
+        totalRenderNanos.addAndGet(elapsed);
+        maxRenderNanos.accumulateAndGet(elapsed, Math::max);
+        return new ReceiptArchive.Receipt(job.billId, job.billTime, RENDERER.getFileExtension(), data);
+    }
+
+    /**
+     * Finds a bill's receipt. The original is preferred: from the archive, or for bills saved
+     * before it existed, from a file in the bills directory. Failing that, as for every bill in
+     * lazy mode, the receipt is rendered again from the saved bill. Blocks on disk and database
+     * reads unless the receipt was viewed recently.
+     *
+     * @return The receipt, or null if there is no such bill or it has no items.
+     * @throws IOException If the receipt had to be rendered and that failed.
+     * @throws SQLException If the receipt had to be rendered and the bill could not be read.
+     */
+    public static ReceiptArchive.Receipt findReceipt(long billId) throws IOException, SQLException {
+        ReceiptArchive.Receipt receipt = cache.get(billId);
+        if (receipt == null) receipt = ReceiptArchive.read(billId);
+        if (receipt == null) receipt = readLegacyFile(billId);
+        if (receipt == null) receipt = regenerate(billId);
+        if (receipt != null) cache.put(receipt);
+        return receipt;
+    }
+
+    private static ReceiptArchive.Receipt readLegacyFile(long billId) {
+        for (String format : LEGACY_FORMATS) {
+            Path file = Paths.get(ReceiptRenderer.BILLS_DIRECTORY, "Bill_" + billId + "." + format);
+            if (!Files.isRegularFile(file)) continue;
+            try {
+                return new ReceiptArchive.Receipt(billId, Files.getLastModifiedTime(file).toMillis(), format, Files.readAllBytes(file));
+            } catch (IOException e) {
+                System.err.println("Error reading receipt " + file + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lays out a saved bill's receipt again with this till's renderer. The discount is whatever the
+     * items' total exceeds the amount charged by.
+     *
+     * @return The receipt, or null if there is no such bill or it has no items.
+     * @throws SQLException If the bill could not be read.
+     */
+    public static ReceiptArchive.Receipt regenerate(long billId) throws IOException, SQLException {
+        DatabaseManager.BillReceipt bill = DatabaseManager.getBillReceipt(billId);
+        if (bill == null || bill.items.isEmpty()) return null;
+        byte[] data = RENDERER.renderToBytes(bill.billId, bill.billTime, bill.items, bill.getSubtotalPaise(), bill.getDiscountPaise(), bill.totalPaise);
+        return new ReceiptArchive.Receipt(bill.billId, bill.billTime, RENDERER.getFileExtension(), data);
+    }
+
+    /**
+     * Renders the receipts of every bill created in [fromMillis, toMillis) and stores them in the
+     * archive, replacing those already there, e.g. after switching renderer or to archive bills
+     * saved in lazy mode. Bills are read a page at a time by keyset and rendered across the
+     * {@link TaskScheduler.Lane#BULK} lane's workers, with a bounded number queued, so memory stays
+     * flat however long the range is. Blocks until every receipt is done.
+     *
+     * @throws SQLException If a page of bills could not be read. The receipts already queued are
+     *                      finished first; the rest of the range is not rebuilt.
+     */
+    public static RebuildResult rebuild(long fromMillis, long toMillis) throws InterruptedException, SQLException {
+        long start = System.currentTimeMillis();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(REBUILD_IN_FLIGHT);
+        long beforeTime = toMillis;
+        long beforeBillId = Long.MIN_VALUE;
+        try {
+            while (true) {
+                DatabaseManager.SalesHistory page = DatabaseManager.querySalesHistoryPage(fromMillis, toMillis, beforeTime, beforeBillId, 0, REBUILD_PAGE_SIZE);
+                for (int row = 0; row < page.size(); row++) {
+                    long billId = page.getBillId(row);
+                    inFlight.acquire();
+                    TaskScheduler.submit(TaskScheduler.Lane.BULK, () -> {
+                        ReceiptArchive.Receipt receipt = regenerate(billId);
+                        if (receipt == null) return false;
+                        ReceiptArchive.store(billId, receipt.billTime, receipt.format, receipt.data);
+                        cache.remove(billId);
+                        return true;
+                    }).whenComplete((stored, error) -> {
+                        if (error != null) {
+                            failedCount.incrementAndGet();
+                            System.err.println("Could not rebuild the receipt for bill " + billId + ": " + error);
+                        } else if (stored) {
+                            done.incrementAndGet();
+                        } else {
+                            skipped.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+                }
+                if (page.size() < REBUILD_PAGE_SIZE) break;
+                beforeTime = page.getBillTime(page.size() - 1);
+                beforeBillId = page.getBillId(page.size() - 1);
+            }
+        } finally {
+            inFlight.acquire(REBUILD_IN_FLIGHT);
+            inFlight.release(REBUILD_IN_FLIGHT);
+        }
+        RebuildResult result = new RebuildResult(done.get(), skipped.get(), failedCount.get(), System.currentTimeMillis() - start);
+        System.out.println("Rebuilt receipts (" + RENDERER.getName() + "): " + result);
+        return result;
+    }
+
+    /**
+     * @return The renderer this till writes receipts with.
+     */
+    public static ReceiptRenderer getRenderer() {
+        return RENDERER;
+    }
+
+    /**
+     * @return Whether receipts are rendered only when viewed rather than stored at checkout.
+     */
+    public static boolean isLazy() {
+        return LAZY;
+    }
+
+    public static Stats getStats() {
+        return new Stats();
+    }
+
+    /**
+     * Waits for queued receipts to finish, up to a limit, and logs the counters. Call before
+     * {@link TaskScheduler#shutdown}, which would otherwise drop receipts still queued.
+     */
+    public static void shutdown(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (pending) {
+            try {
+                for (long left = timeoutMillis; pending.get() > 0 && left > 0; left = deadline - System.currentTimeMillis()) {
+                    pending.wait(left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("Receipt service stopped (" + RENDERER.getName() + "): " + getStats());
+    }
+}
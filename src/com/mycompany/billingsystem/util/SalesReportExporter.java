@@ -0,0 +1,430 @@
+package com.mycompany.billingsystem.util;
+
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.borders.Border;
+import com.itextpdf.layout.borders.SolidBorder;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.property.TextAlignment;
+import com.itextpdf.layout.property.UnitValue;
+import com.mycompany.billingsystem.db.DatabaseManager;
+import com.mycompany.billingsystem.model.Money;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Exports the bills in a date range, with their items, as a CSV file or a multi-page PDF report.
+ *
+ * The range is cut into chunks of {@link #CHUNK_BILLS} bills by keyset on (bill_date, bill_id):
+ * each boundary is found by skipping that many rows along idx_bills_date from the one before, so
+ * planning reads no bills. The chunks are written to temporary part files across a fork-join pool
+ * and the parts are then joined in order into the target file. CSV rows are streamed straight from
+ * the database; a PDF chunk's rows are read in full first so its reader connection is handed back
+ * before the slower layout starts. The pool is kept one worker short of the reader connections, so
+ * an export never blocks the rest of the app's reads. At most one chunk per worker is in progress,
+ * so memory stays flat however many bills the range holds.
+ */
+public final class SalesReportExporter {
+
+    /** The export formats, named by their file extension. */
+    public enum Format {
+        CSV("csv"), PDF("pdf");
+
+        public final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return The format a file name's extension asks for, or null if it names neither.
+         */
+        public static Format forFileName(String fileName) {
+            String name = fileName.toLowerCase();
+            for (Format format : values()) if (name.endsWith("." + format.extension)) return format;
+            return null;
+        }
+    }
+
+    /**
+     * What an export wrote.
+     */
+    public static final class Result {
+        public final Path file;
+        public final int bills;
+        public final int items;
+        /** The sum of the bill totals, in paise. */
+        public final long totalPaise;
+        public final long elapsedMillis;
+
+        Result(Path file, int bills, int items, long totalPaise, long elapsedMillis) {
+            this.file = file;
+            this.bills = bills;
+            this.items = items;
+            this.totalPaise = totalPaise;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d bills, %d items, total %s in %d ms", file, bills, items, Money.format(totalPaise), elapsedMillis);
+        }
+    }
+
+    static final int CHUNK_BILLS = 2_000;
+    private static final int PARALLELISM = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, DatabaseManager.getReaderConnections() - 1));
+    private static final String CSV_HEADER = "Bill ID,Date,Bill Total,Item,Quantity,Price,Line Total\n";
+    /** Large PDF tables are handed to the layout every this many rows, so a chunk never holds its whole table. */
+    private static final int PDF_FLUSH_ROWS = 200;
+
+    private static final Style HEADER_CELL = new Style().setBold().setTextAlignment(TextAlignment.CENTER).setPadding(3);
+    private static final Style ROW_CELL = new Style().setBorder(Border.NO_BORDER).setPaddingTop(1).setPaddingBottom(1);
+    private static final Style TOTAL_CELL = new Style().setBold().setBorder(Border.NO_BORDER).setBorderBottom(new SolidBorder(0.5f)).setPaddingBottom(3);
+
+    /** A slice of the range: keys below (beforeTime, beforeBillId) down to (lastTime, lastBillId) inclusive. */
+    private static final class Chunk {
+        final long beforeTime, beforeBillId, lastTime, lastBillId;
+
+        Chunk(long beforeTime, long beforeBillId, long lastTime, long lastBillId) {
+            this.beforeTime = beforeTime;
+            this.beforeBillId = beforeBillId;
+            this.lastTime = lastTime;
+            this.lastBillId = lastBillId;
+        }
+    }
+
+    /** A chunk's report rows, read into columns so the layout can run without holding a connection. */
+    private static final class ReportRows implements DatabaseManager.ReportRowHandler {
+        private int size;
+        private long[] billIds = new long[256];
+        private long[] billTimes = new long[256];
+        private long[] totals = new long[256];
+        private String[] itemNames = new String[256];
+        private int[] quantities = new int[256];
+        private long[] prices = new long[256];
+
+        @Override
+        public void row(long billId, long billTime, long totalPaise, String itemName, int quantity, long pricePaise) {
+            if (size == billIds.length) {
+                int capacity = size * 2;
+                billIds = Arrays.copyOf(billIds, capacity);
+                billTimes = Arrays.copyOf(billTimes, capacity);
+                totals = Arrays.copyOf(totals, capacity);
+                itemNames = Arrays.copyOf(itemNames, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+            }
+            billIds[size] = billId;
+            billTimes[size] = billTime;
+            totals[size] = totalPaise;
+            itemNames[size] = itemName;
+            quantities[size] = quantity;
+            prices[size] = pricePaise;
+            size++;
+        }
+    }
+
+    /** One chunk's part file and what went into it. */
+    private static final class Part {
+        final Path file;
+        int bills;
+        int items;
+        long totalPaise;
+        long newestBillTime = Long.MIN_VALUE;
+        long oldestBillTime = Long.MAX_VALUE;
+
+        Part(Path file) {
+            this.file = file;
+        }
+    }
+
+    /** Writes chunks [from, to) as parts, splitting in halves until each task has one chunk. */
+    private static final class ExportTask extends RecursiveTask<List<Part>> {
+        private final Format format;
+        private final long fromMillis, toMillis;
+        private final List<Chunk> chunks;
+        private final Path dir;
+        private final int from, to;
+
+        ExportTask(Format format, long fromMillis, long toMillis, List<Chunk> chunks, Path dir, int from, int to) {
+            this.format = format;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.chunks = chunks;
+            this.dir = dir;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Part> compute() {
+            if (to - from == 1) {
+                try {
+                    return List.of(writePart(format, fromMillis, toMillis, chunks.get(from), dir));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (SQLException e) {
+                    throw new UncheckedIOException(new IOException("Could not read bills: " + e.getMessage(), e));
+                }
+            }
+            int middle = (from + to) >>> 1;
+            ExportTask newer = new ExportTask(format, fromMillis, toMillis, chunks, dir, from, middle);
+            ExportTask older = new ExportTask(format, fromMillis, toMillis, chunks, dir, middle, to);
+            invokeAll(newer, older);
+            List<Part> parts = new ArrayList<>(newer.join());
+            parts.addAll(older.join());
+            return parts;
+        }
+    }
+
+    private SalesReportExporter() {}
+
+    /**
+     * Writes the bills created in [fromMillis, toMillis), newest first, to a file. The file is
+     * written under a temporary name beside the target and moved into place when complete.
+     *
+     * @throws IOException If the bills could not be read or the file could not be written; the
+     *                     target is left as it was.
+     */
+    public static Result export(long fromMillis, long toMillis, Format format, Path target) throws IOException {
+        long start = System.currentTimeMillis();
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        List<Chunk> chunks = planChunks(fromMillis, toMillis);
+        // Parts go in a directory of their own, so those of a failed export are easy to clear away.
+        Path partsDir = Files.createTempDirectory(dir, target.getFileName() + "-parts-");
+        // Created by the join rather than by createTempFile, so it gets the usual permissions, not owner-only.
+        Path temp = partsDir.resolve(target.getFileName() + ".tmp");
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            List<Part> parts = pool.invoke(new ExportTask(format, fromMillis, toMillis, chunks, partsDir, 0, chunks.size()));
+            Part summary = new Part(null);
+            for (Part part : parts) {
+                summary.bills += part.bills;
+                summary.items += part.items;
+                summary.totalPaise += part.totalPaise;
+                summary.newestBillTime = Math.max(summary.newestBillTime, part.newestBillTime);
+                summary.oldestBillTime = Math.min(summary.oldestBillTime, part.oldestBillTime);
+            }
+            if (format == Format.CSV) joinCsv(parts, temp);
+            else joinPdf(parts, summary, temp);
+            if (Files.exists(target)) keepPermissions(target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Result result = new Result(target, summary.bills, summary.items, summary.totalPaise, System.currentTimeMillis() - start);
+            System.out.println("Exported sales report (" + chunks.size() + " chunks) to " + result);
+            return result;
+        } catch (UncheckedIOException e) {
+            // The pool may rethrow a copy of the task's exception, with the original as its cause.
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) throw (IOException) cause;
+            }
+            throw new IOException(e);
+        } finally {
+            pool.shutdown();
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(partsDir)) {
+                for (Path part : leftovers) Files.deleteIfExists(part);
+            }
+            Files.deleteIfExists(partsDir);
+        }
+    }
+
+    /** Gives the new file the permissions of the one it replaces, where the file system has POSIX ones. */
+    private static void keepPermissions(Path target, Path temp) throws IOException {
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        } catch (UnsupportedOperationException e) {
+            // Elsewhere the file takes its permissions from the directory, as the target did.
+        }
+    }
+
+    /** Finds the chunk boundaries by skipping {@link #CHUNK_BILLS} rows at a time along the keyset index. */
+    private static List<Chunk> planChunks(long fromMillis, long toMillis) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long beforeTime = toMillis;
+        long beforeBillId = Long.MIN_VALUE;
+        while (true) {
+            DatabaseManager.SalesHistory last;
+            try {
+                last = DatabaseManager.querySalesHistoryPage(fromMillis, toMillis, beforeTime, beforeBillId, CHUNK_BILLS - 1, 1);
+            } catch (SQLException e) {
+                throw new IOException("Could not read bills: " + e.getMessage(), e);
+            }
+            if (last.size() == 0) {
+                chunks.add(new Chunk(beforeTime, beforeBillId, fromMillis, Long.MIN_VALUE));
+                return chunks;
+            }
+            chunks.add(new Chunk(beforeTime, beforeBillId, last.getBillTime(0), last.getBillId(0)));
+            beforeTime = last.getBillTime(0);
+            beforeBillId = last.getBillId(0);
+        }
+    }
+
+    private static Part writePart(Format format, long fromMillis, long toMillis, Chunk chunk, Path dir) throws IOException, SQLException {
+        Part part = new Part(Files.createTempFile(dir, "part-", "." + format.extension));
+        if (format == Format.CSV) writeCsvPart(fromMillis, toMillis, chunk, part);
+        else writePdfPart(fromMillis, toMillis, chunk, part);
+        return part;
+    }
+
+    /** Counts a row into the part, returning whether it starts a new bill. */
+    private static boolean count(Part part, long previousBillId, long billId, long billTime, long totalPaise, String itemName) {
+        if (itemName != null) part.items++;
+        if (billId == previousBillId) return false;
+        part.bills++;
+        part.totalPaise += totalPaise;
+        part.newestBillTime = Math.max(part.newestBillTime, billTime);
+        part.oldestBillTime = Math.min(part.oldestBillTime, billTime);
+        return true;
+    }
+
+    // --- CSV ---
+
+    private static void writeCsvPart(long fromMillis, long toMillis, Chunk chunk, Part part) throws IOException, SQLException {
+        try (Writer out = Files.newBufferedWriter(part.file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(128);
+            long[] previousBillId = {Long.MIN_VALUE};
+            DatabaseManager.forEachReportRow(fromMillis, toMillis, chunk.beforeTime, chunk.beforeBillId, chunk.lastTime, chunk.lastBillId,
+                    (billId, billTime, totalPaise, itemName, quantity, pricePaise) -> {
+                        count(part, previousBillId[0], billId, billTime, totalPaise, itemName);
+                        previousBillId[0] = billId;
+                        line.setLength(0);
+                        line.append(billId).append(',').append(DateTimes.format(billTime)).append(',');
+                        Money.appendTo(line, totalPaise).append(',');
+                        if (itemName != null) {
+                            appendCsvField(line, itemName).append(',').append(quantity).append(',');
+                            Money.appendTo(line, pricePaise).append(',');
+                            Money.appendTo(line, pricePaise * quantity);
+                        } else {
+                            line.append(",,,");
+                        }
+                        out.append(line).append('\n');
+                    });
+        }
+    }
+
+    /** Quotes a field if it holds a comma, quote or line break, doubling any quotes. */
+    private static StringBuilder appendCsvField(StringBuilder line, String field) {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) return line.append(field);
+        line.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') line.append('"');
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private static void joinCsv(List<Part> parts, Path temp) throws IOException {
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            for (Part part : parts) Files.copy(part.file, out);
+        }
+    }
+
+    // --- PDF ---
+
+    private static void writePdfPart(long fromMillis, long toMillis, Chunk chunk, Part part) throws IOException, SQLException {
+        ReportRows rows = new ReportRows();
+        DatabaseManager.forEachReportRow(fromMillis, toMillis, chunk.beforeTime, chunk.beforeBillId, chunk.lastTime, chunk.lastBillId, rows);
+        try (PdfDocument pdf = new PdfDocument(new PdfWriter(part.file.toFile()));
+             Document document = new Document(pdf, PageSize.A4)) {
+            document.setFont(PdfFontFactory.createFont(PdfGenerator.REGULAR_FONT, PdfEncodings.WINANSI)).setFontSize(9);
+            Table table = new Table(UnitValue.createPercentArray(new float[]{2, 4, 7, 2, 3, 3}), true);
+            table.setWidth(UnitValue.createPercentValue(100));
+            for (String header : new String[]{"Bill ID", "Date", "Item", "Qty", "Price", "Amount"}) {
+                table.addHeaderCell(new Cell().add(new Paragraph(header)).addStyle(HEADER_CELL));
+            }
+            document.add(table);
+            long previousBillId = Long.MIN_VALUE;
+            for (int row = 0; row < rows.size; row++) {
+                long billId = rows.billIds[row];
+                String itemName = rows.itemNames[row];
+                int quantity = rows.quantities[row];
+                long pricePaise = rows.prices[row];
+                boolean newBill = count(part, previousBillId, billId, rows.billTimes[row], rows.totals[row], itemName);
+                if (newBill && row > 0) addBillTotal(table, rows.totals[row - 1]);
+                previousBillId = billId;
+                table.addCell(rowCell(newBill ? String.valueOf(billId) : "", TextAlignment.LEFT));
+                table.addCell(rowCell(newBill ? DateTimes.format(rows.billTimes[row]) : "", TextAlignment.LEFT));
+                table.addCell(rowCell(itemName == null ? "(no items)" : itemName, TextAlignment.LEFT));
+                table.addCell(rowCell(itemName == null ? "" : String.valueOf(quantity), TextAlignment.RIGHT));
+                table.addCell(rowCell(itemName == null ? "" : Money.format(pricePaise), TextAlignment.RIGHT));
+                table.addCell(rowCell(itemName == null ? "" : Money.format(pricePaise * quantity), TextAlignment.RIGHT));
+                if ((row + 1) % PDF_FLUSH_ROWS == 0) table.flush();
+            }
+            if (rows.size > 0) addBillTotal(table, rows.totals[rows.size - 1]);
+            table.complete();
+        }
+    }
+
+    private static void addBillTotal(Table table, long totalPaise) {
+        table.addCell(new Cell(1, 5).add(new Paragraph("Bill Total")).addStyle(TOTAL_CELL).setTextAlignment(TextAlignment.RIGHT));
+        table.addCell(new Cell().add(new Paragraph(Money.format(totalPaise))).addStyle(TOTAL_CELL).setTextAlignment(TextAlignment.RIGHT));
+    }
+
+    private static Cell rowCell(String text, TextAlignment alignment) {
+        return new Cell().add(new Paragraph(text)).addStyle(ROW_CELL).setTextAlignment(alignment);
+    }
+
+    /**
+     * Writes a summary page, then copies in each part's pages in order, flushing them to the
+     * file as they go so the joined document is never held in memory.
+     */
+    private static void joinPdf(List<Part> parts, Part summary, Path temp) throws IOException {
+        try (PdfDocument pdf = new PdfDocument(new PdfWriter(temp.toFile()))) {
+            Document document = new Document(pdf, PageSize.A4);
+            document.setFont(PdfFontFactory.createFont(PdfGenerator.REGULAR_FONT, PdfEncodings.WINANSI));
+            document.add(new Paragraph("TEAM 5 - Sales Report").setBold().setFontSize(18).setTextAlignment(TextAlignment.CENTER));
+            document.add(new Paragraph("Mavoor Road, Kozhikode, Kerala").setTextAlignment(TextAlignment.CENTER));
+            if (summary.bills > 0) {
+                document.add(new Paragraph("Bills from " + DateTimes.format(summary.oldestBillTime) + " to " + DateTimes.format(summary.newestBillTime)).setMarginTop(20));
+            }
+            document.add(new Paragraph("Bills: " + summary.bills));
+            document.add(new Paragraph("Items sold: " + summary.items));
+            document.add(new Paragraph("Total sales: Rs. " + Money.format(summary.totalPaise)).setBold());
+            document.add(new Paragraph("Generated " + DateTimes.format(System.currentTimeMillis())).setFontSize(9));
+            // Closing the layout would close the document before the parts are copied in.
+            document.flush();
+            pdf.getPage(pdf.getNumberOfPages()).flush();
+            for (Part part : parts) {
+                if (part.bills == 0) continue;
+                try (PdfDocument source = new PdfDocument(new PdfReader(part.file.toFile()))) {
+                    source.copyPagesTo(1, source.getNumberOfPages(), pdf);
+                    pdf.flushCopiedObjects(source);
+                }
+            }
+        }
+    }
+}
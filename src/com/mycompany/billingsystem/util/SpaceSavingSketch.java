@@ -0,0 +1,230 @@
+package com.mycompany.billingsystem.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate heavy hitters over a stream of weighted keys using the Space-Saving algorithm
+ * (Metwally, Agrawal and El Abbadi, 2005).
+ *
+ * At most {@code capacity} counters are kept. When a new key arrives and all counters are in use,
+ * the smallest counter is reassigned to the new key and keeps its count, which is recorded as that
+ * key's possible overestimate. Every reported count is therefore an upper bound that exceeds the true
+ * count by at most {@link #getTotalWeight()} / capacity, and every key whose true count exceeds that
+ * bound is guaranteed to be tracked. While fewer distinct keys than counters have been seen, all
+ * counts are exact.
+ *
+ * The best {@code trackedTop} keys are kept in a sorted list that is patched on each update, so
+ * {@link #top} does not scan or sort the counters. Not thread-safe.
+ */
+public final class SpaceSavingSketch {
+
+    /**
+     * One tracked key with its estimated count.
+     */
+    public static final class Entry {
+        private final String key;
+        private final long count;
+        private final long error;
+
+        Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() { return key; }
+        /** @return The estimated count, never below the true count. */
+        public long getCount() { return count; }
+        /** @return How much the count may overestimate; the true count is at least count - error. */
+        public long getError() { return error; }
+    }
+
+    private static final class Counter {
+        final String key;
+        long count;
+        long error;
+        int heapIndex;
+        boolean inTop;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private final int capacity;
+    private final int trackedTop;
+    private final Map<String, Counter> counters;
+    /** Min-heap on count, so the counter to reassign is always at index 0. */
+    private final Counter[] heap;
+    private int size = 0;
+    /** The largest counters, highest first. */
+    private final List<Counter> top = new ArrayList<>();
+    private long totalWeight = 0;
+
+    /**
+     * @param capacity The number of counters; the count error is at most totalWeight / capacity.
+     * @param trackedTop How many of the largest counters {@link #top} can return.
+     */
+    public SpaceSavingSketch(int capacity, int trackedTop) {
+        this.trackedTop = Math.max(1, trackedTop);
+        // More counters than tracked top entries, so the counter being reassigned is never one of the top unless counts tie.
+        this.capacity = Math.max(capacity, this.trackedTop + 1);
+        this.counters = new HashMap<>(this.capacity * 2);
+        this.heap = new Counter[this.capacity];
+    }
+
+    /**
+     * Creates a sketch whose counts are within the given fraction of the total weight.
+     * @param errorRate The maximum overestimate as a fraction of the total, e.g. 0.001.
+     */
+    public static SpaceSavingSketch withErrorRate(double errorRate, int trackedTop) {
+        return new SpaceSavingSketch((int) Math.ceil(1.0 / errorRate), trackedTop);
+    }
+
+    /**
+     * Adds weight to a key.
+     * @param key The key, e.g. a barcode.
+     * @param weight A positive amount, e.g. a quantity sold.
+     */
+    public void add(String key, long weight) {
+        if (weight <= 0) return;
+        totalWeight += weight;
+        Counter counter = counters.get(key);
+        boolean appended = false;
+        if (counter == null) {
+            if (size < capacity) {
+                appended = true;
+                counter = new Counter(key);
+                counter.heapIndex = size;
+                heap[size++] = counter;
+            } else {
+                // Reassign the smallest counter; its count becomes the newcomer's error bound.
+                Counter evicted = heap[0];
+                counters.remove(evicted.key);
+                if (evicted.inTop) top.remove(evicted);
+                counter = new Counter(key);
+                counter.count = evicted.count;
+                counter.error = evicted.count;
+                counter.heapIndex = 0;
+                heap[0] = counter;
+            }
+            counters.put(key, counter);
+        }
+        counter.count += weight;
+        if (appended) siftUp(counter.heapIndex);
+        else siftDown(counter.heapIndex);
+        offerTop(counter);
+        if (top.size() < Math.min(trackedTop, size)) rebuildTop();
+    }
+
+    /**
+     * @param n How many keys to return; at most the trackedTop given at construction.
+     * @return The keys with the largest estimated counts, highest first.
+     */
+    public List<Entry> top(int n) {
+        int limit = Math.min(n, top.size());
+        List<Entry> entries = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            Counter counter = top.get(i);
+            entries.add(new Entry(counter.key, counter.count, counter.error));
+        }
+        return entries;
+    }
+
+    /**
+     * @return The estimated count of a key, or 0 if it is not tracked.
+     */
+    public long estimate(String key) {
+        Counter counter = counters.get(key);
+        return counter == null ? 0 : counter.count;
+    }
+
+    /**
+     * @return The most any count may currently overestimate by: 0 until the counters are full, then the smallest count.
+     */
+    public long getMaxError() {
+        return size < capacity ? 0 : heap[0].count;
+    }
+
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        counters.clear();
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        top.clear();
+        totalWeight = 0;
+    }
+
+    private void offerTop(Counter counter) {
+        int index;
+        if (counter.inTop) {
+            index = top.indexOf(counter);
+        } else {
+            if (top.size() >= trackedTop && counter.count <= top.get(top.size() - 1).count) return;
+            if (top.size() >= trackedTop) top.remove(top.size() - 1).inTop = false;
+            counter.inTop = true;
+            top.add(counter);
+            index = top.size() - 1;
+        }
+        // Counts only grow, so the counter can only move towards the front.
+        while (index > 0 && top.get(index - 1).count < counter.count) {
+            top.set(index, top.get(index - 1));
+            index--;
+        }
+        top.set(index, counter);
+    }
+
+    /**
+     * Refills the top list from all counters; only needed after a tied top counter was reassigned.
+     */
+    private void rebuildTop() {
+        for (Counter counter : top) counter.inTop = false;
+        top.clear();
+        Counter[] all = Arrays.copyOf(heap, size);
+        Arrays.sort(all, Comparator.comparingLong((Counter c) -> c.count).reversed());
+        for (int i = 0; i < Math.min(trackedTop, all.length); i++) {
+            all[i].inTop = true;
+            top.add(all[i]);
+        }
+    }
+
+    private void siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].count <= counter.count) break;
+            heap[index] = heap[parent];
+            heap[index].heapIndex = index;
+            index = parent;
+        }
+        heap[index] = counter;
+        counter.heapIndex = index;
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) child++;
+            if (heap[child].count >= counter.count) break;
+            heap[index] = heap[child];
+            heap[index].heapIndex = index;
+            index = child;
+        }
+        heap[index] = counter;
+        counter.heapIndex = index;
+    }
+}
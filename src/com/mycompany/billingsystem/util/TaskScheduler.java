@@ -0,0 +1,334 @@
+package com.mycompany.billingsystem.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the application's background work in separate priority lanes.
+ *
+ * Each {@link Lane} has its own queue and its own limit on how many of its tasks run at once, so a
+ * burst of report refreshes can never delay a checkout: checkout tasks wait only for other checkout
+ * tasks. Tasks run on virtual threads when the JVM has them (Java 21+), which suits the blocking
+ * SQLite and file I/O they do; on older JVMs they run on a pool of daemon platform threads, with
+ * thread priority following the lane.
+ *
+ * {@link #submitLatest} is for work where only the newest request matters, such as reloading a
+ * table: submitting again under the same key cancels the previous task's future, and the task
+ * itself too if it has not started yet.
+ *
+ * Per-lane queue depth, wait and run times are available from {@link #getStats} and are logged on
+ * {@link #shutdown}.
+ */
+public final class TaskScheduler {
+
+    /**
+     * Priority lanes, highest first.
+     */
+    public enum Lane {
+        /** Saving bills and anything the cashier is waiting on to finish a sale. */
+        CHECKOUT(4, 10_000, Thread.MAX_PRIORITY - 1),
+        /** Rendering receipts for bills already saved; see {@link ReceiptService}. */
+        RECEIPT(2, 500, Thread.NORM_PRIORITY + 1),
+        /** Product lookups and suggestions while ringing up. */
+        LOOKUP(4, 1_000, Thread.NORM_PRIORITY + 1),
+        /** Reloading tables and the dashboard. */
+        REFRESH(2, 1_000, Thread.NORM_PRIORITY),
+        /** Cache warm-up and other work nobody is watching. */
+        BACKGROUND(2, 10_000, Thread.MIN_PRIORITY + 1),
+        /** Re-rendering many receipts at once; all but one core, so the till stays responsive. */
+        BULK(Math.max(2, Runtime.getRuntime().availableProcessors() - 1), 1_000, Thread.MIN_PRIORITY + 1);
+
+        final int maxConcurrency;
+        final int queueCapacity;
+        final int threadPriority;
+
+        Lane(int maxConcurrency, int queueCapacity, int threadPriority) {
+            this.maxConcurrency = maxConcurrency;
+            this.queueCapacity = queueCapacity;
+            this.threadPriority = threadPriority;
+        }
+    }
+
+    /**
+     * A point-in-time view of one lane's counters.
+     */
+    public static final class LaneStats {
+        public final Lane lane;
+        public final int queued;
+        public final int running;
+        public final int maxQueued;
+        public final long submitted;
+        public final long completed;
+        public final long failed;
+        public final long cancelled;
+        public final long rejected;
+        public final double avgWaitMillis;
+        public final double maxWaitMillis;
+        public final double avgRunMillis;
+
+        LaneStats(LaneState s) {
+            lane = s.lane;
+            queued = s.queue.size();
+            running = s.running;
+            maxQueued = s.maxQueued;
+            submitted = s.submitted;
+            completed = s.completed;
+            failed = s.failed;
+            cancelled = s.cancelled;
+            rejected = s.rejected;
+            long started = Math.max(1, s.started);
+            long finished = Math.max(1, s.completed + s.failed);
+            avgWaitMillis = s.totalWaitNanos / 1e6 / started;
+            maxWaitMillis = s.maxWaitNanos / 1e6;
+            avgRunMillis = s.totalRunNanos / 1e6 / finished;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: queued=%d (max %d) running=%d submitted=%d completed=%d failed=%d cancelled=%d rejected=%d wait avg=%.2fms max=%.2fms run avg=%.2fms",
+                    lane, queued, maxQueued, running, submitted, completed, failed, cancelled, rejected, avgWaitMillis, maxWaitMillis, avgRunMillis);
+        }
+    }
+
+    private static final class Task<T> {
+        final LaneState lane;
+        final Callable<T> work;
+        final String key;
+        final long submittedAt = System.nanoTime();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Task(LaneState lane, Callable<T> work, String key) {
+            this.lane = lane;
+            this.work = work;
+            this.key = key;
+        }
+
+        void run() {
+            long startedAt = System.nanoTime();
+            synchronized (lane) {
+                lane.started++;
+                lane.totalWaitNanos += startedAt - submittedAt;
+                lane.maxWaitNanos = Math.max(lane.maxWaitNanos, startedAt - submittedAt);
+            }
+            if (!VIRTUAL_THREADS) Thread.currentThread().setPriority(lane.lane.threadPriority);
+            boolean failed = false;
+            try {
+                // A task superseded while queued is never started; one superseded while running finishes but its result is dropped.
+                if (!result.isDone()) result.complete(work.call());
+            } catch (Throwable t) {
+                failed = !result.isCancelled();
+                result.completeExceptionally(t);
+            } finally {
+                lane.finished(this, System.nanoTime() - startedAt, failed);
+            }
+        }
+    }
+
+    private static final class LaneState {
+        final Lane lane;
+        final Deque<Task<?>> queue = new ArrayDeque<>();
+        final Map<String, Task<?>> latestByKey = new HashMap<>();
+        int running;
+        int maxQueued;
+        long submitted, started, completed, failed, cancelled, rejected;
+        long totalWaitNanos, maxWaitNanos, totalRunNanos;
+
+        LaneState(Lane lane) {
+            this.lane = lane;
+        }
+
+        synchronized void enqueue(Task<?> task) {
+            if (shutdown) throw new RejectedExecutionException("Task scheduler is shut down");
+            if (queue.size() >= lane.queueCapacity) {
+                rejected++;
+                throw new RejectedExecutionException(lane + " lane is full (" + lane.queueCapacity + " queued)");
+            }
+            if (task.key != null) {
+                Task<?> previous = latestByKey.put(task.key, task);
+                if (previous != null) supersede(previous);
+            }
+            submitted++;
+            queue.addLast(task);
+            maxQueued = Math.max(maxQueued, queue.size());
+            dispatch();
+        }
+
+        private void supersede(Task<?> previous) {
+            // A running task is left to finish (it may hold a database connection); cancelling its future drops the result.
+            if (queue.remove(previous)) cancelled++;
+            previous.result.cancel(false);
+        }
+
+        /** Starts queued tasks while the lane has spare concurrency. Caller holds the lock. */
+        private void dispatch() {
+            while (running < lane.maxConcurrency && !queue.isEmpty()) {
+                Task<?> task = queue.pollFirst();
+                running++;
+                try {
+                    start(task);
+                } catch (RuntimeException e) {
+                    running--;
+                    task.result.completeExceptionally(e);
+                }
+            }
+        }
+
+        synchronized void finished(Task<?> task, long runNanos, boolean taskFailed) {
+            running--;
+            totalRunNanos += runNanos;
+            if (task.result.isCancelled()) cancelled++;
+            else if (taskFailed) failed++;
+            else completed++;
+            if (task.key != null) latestByKey.remove(task.key, task);
+            dispatch();
+        }
+    }
+
+    private static final boolean VIRTUAL_THREADS;
+    private static final ThreadFactory virtualThreadFactory;
+    private static final ExecutorService platformThreads;
+    private static final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+    private static volatile boolean shutdown = false;
+
+    static {
+        for (Lane lane : Lane.values()) lanes.put(lane, new LaneState(lane));
+        ThreadFactory factory = null;
+        try {
+            // Thread.ofVirtual().name("task-", 0).factory(), looked up reflectively so the code still runs on Java 17.
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "task-", 0L);
+            Method factoryMethod = builderClass.getMethod("factory");
+            factory = (ThreadFactory) factoryMethod.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // No virtual threads on this JVM.
+        }
+        virtualThreadFactory = factory;
+        VIRTUAL_THREADS = factory != null;
+        if (VIRTUAL_THREADS) {
+            platformThreads = null;
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            platformThreads = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "task-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private TaskScheduler() {}
+
+    /**
+     * Queues a task on a lane.
+     * @return A future completed with the task's result, or exceptionally with what it threw or a
+     *         RejectedExecutionException if the lane's queue is full or the scheduler is shut down.
+     */
+    public static <T> CompletableFuture<T> submit(Lane lane, Callable<T> task) {
+        return enqueue(lane, task, null);
+    }
+
+    /**
+     * Queues a task that supersedes any unfinished task submitted under the same key. The older
+     * task's future is cancelled; it is removed from the queue if it has not started, and its result
+     * is discarded if it has.
+     * @return A future that is cancelled if a newer task with the same key is submitted before it completes.
+     */
+    public static <T> CompletableFuture<T> submitLatest(Lane lane, String key, Callable<T> task) {
+        return enqueue(lane, task, key);
+    }
+
+    /**
+     * Queues a task whose result nobody waits for. A failure is logged, as the future is usually ignored.
+     */
+    public static CompletableFuture<Void> run(Lane lane, Runnable task) {
+        CompletableFuture<Void> result = submit(lane, () -> {
+            task.run();
+            return null;
+        });
+        result.whenComplete((ignored, error) -> {
+            if (error != null && !isCancellation(error)) System.err.println("Background task failed on " + lane + " lane: " + error);
+        });
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> enqueue(Lane lane, Callable<T> work, String key) {
+        LaneState state = lanes.get(lane);
+        Task<T> task = new Task<>(state, work, key);
+        try {
+            state.enqueue(task);
+        } catch (RejectedExecutionException e) {
+            task.result.completeExceptionally(e);
+        }
+        return task.result;
+    }
+
+    private static void start(Task<?> task) {
+        if (VIRTUAL_THREADS) virtualThreadFactory.newThread(task::run).start();
+        else platformThreads.execute(task::run);
+    }
+
+    /**
+     * @return Whether tasks run on virtual threads.
+     */
+    public static boolean usesVirtualThreads() {
+        return VIRTUAL_THREADS;
+    }
+
+    public static LaneStats getStats(Lane lane) {
+        LaneState state = lanes.get(lane);
+        synchronized (state) {
+            return new LaneStats(state);
+        }
+    }
+
+    /**
+     * @return Whether the exception only reports that a task was superseded or cancelled.
+     */
+    public static boolean isCancellation(Throwable t) {
+        while (t != null) {
+            if (t instanceof CancellationException) return true;
+            t = t.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Stops accepting tasks, cancels those still queued and waits briefly for running ones.
+     */
+    public static void shutdown() {
+        shutdown = true;
+        for (LaneState state : lanes.values()) {
+            synchronized (state) {
+                for (Task<?> task : state.queue) {
+                    task.result.cancel(false);
+                    state.cancelled++;
+                }
+                state.queue.clear();
+            }
+        }
+        if (platformThreads != null) {
+            platformThreads.shutdown();
+            try {
+                platformThreads.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("Task scheduler stopped (" + (VIRTUAL_THREADS ? "virtual" : "platform") + " threads):");
+        for (Lane lane : Lane.values()) System.out.println("  " + getStats(lane));
+    }
+}